@@ -0,0 +1,251 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.Set;
+import java.util.TreeSet;
+
+import fxml2java.element.FXMLJavaDescriptor;
+
+/**
+ * <p>A copy of everything the output methods read from a resolved descriptor: imports, fields, the setupFX() and
+ * setTextStrings() instructions, the handlers, the root container and any warnings.  A copy can be stored in a
+ * {@link SharedCache} entry and read back in place of resolving the source again.
+ * 
+ * @author James David Foster
+ *
+ */
+class CachedDescriptor implements FXMLJavaDescriptor
+{
+  private final Set<String> importList = new TreeSet<>();
+
+  private final List<String> fieldList = new ArrayList<>();
+
+  private final List<String> instructionList = new ArrayList<>();
+
+  private final List<String> textStringList = new ArrayList<>();
+
+  private final List<Handler> handlerList = new ArrayList<>();
+
+  private final List<String> warningList = new ArrayList<>();
+
+  private String rootInstanceName;
+
+  private String rootInstanceDataType;
+
+  private String rootInstanceGenericDecl;
+
+  private CachedDescriptor()
+  {
+  }
+
+  /**
+   * <p>Copy a resolved descriptor.
+   * 
+   * @param fjd
+   * @return
+   * @throws IOException
+   */
+  static CachedDescriptor copyOf(FXMLJavaDescriptor fjd) throws IOException
+  {
+    CachedDescriptor cd = new CachedDescriptor();
+
+    for (String s : fjd.getImportList())
+      cd.importList.add(s);
+    for (String s : fjd.getFieldList())
+      cd.fieldList.add(s);
+    fjd.outputElementInstructions(cd.instructionList::add);
+    for (String s : fjd.getTextStringUpdateInstructionList())
+      cd.textStringList.add(s);
+    for (Handler h : fjd.getHandlerList())
+      cd.handlerList.add(h);
+    for (String s : fjd.getWarningList())
+      cd.warningList.add(s);
+
+    cd.rootInstanceName = fjd.getRootInstanceName();
+    cd.rootInstanceDataType = fjd.getRootInstanceDataType();
+    cd.rootInstanceGenericDecl = fjd.getRootInstanceGenericDecl();
+
+    return cd;
+  }
+
+  /**
+   * <p>Read a descriptor back from the properties written by {@link #toProperties()}.
+   * 
+   * @param p
+   * @return
+   */
+  static CachedDescriptor fromProperties(Properties p)
+  {
+    CachedDescriptor cd = new CachedDescriptor();
+
+    cd.importList.addAll(getList(p, "import"));
+    cd.fieldList.addAll(getList(p, "field"));
+    cd.instructionList.addAll(getList(p, "instruction"));
+    cd.textStringList.addAll(getList(p, "text"));
+    cd.warningList.addAll(getList(p, "warning"));
+
+    List<String> types = getList(p, "handler.type");
+    List<String> names = getList(p, "handler.name");
+    for (int i = 0; i < types.size(); i++)
+      cd.handlerList.add(new Handler(types.get(i), names.get(i)));
+
+    cd.rootInstanceName = p.getProperty("root.name");
+    cd.rootInstanceDataType = p.getProperty("root.type");
+    cd.rootInstanceGenericDecl = p.getProperty("root.generic");
+
+    if (cd.rootInstanceName == null || cd.rootInstanceDataType == null || cd.rootInstanceGenericDecl == null)
+      throw new IllegalArgumentException("Incomplete descriptor.");
+
+    return cd;
+  }
+
+  /**
+   * <p>Write the descriptor as properties.
+   * 
+   * @return
+   */
+  Properties toProperties()
+  {
+    Properties p = new Properties();
+
+    putList(p, "import", importList);
+    putList(p, "field", fieldList);
+    putList(p, "instruction", instructionList);
+    putList(p, "text", textStringList);
+    putList(p, "warning", warningList);
+
+    List<String> types = new ArrayList<>();
+    List<String> names = new ArrayList<>();
+    for (Handler h : handlerList)
+    {
+      types.add(h.getType());
+      names.add(h.getHandlerName());
+    }
+    putList(p, "handler.type", types);
+    putList(p, "handler.name", names);
+
+    p.setProperty("root.name", rootInstanceName);
+    p.setProperty("root.type", rootInstanceDataType);
+    p.setProperty("root.generic", rootInstanceGenericDecl);
+
+    return p;
+  }
+
+  private static void putList(Properties p, String key, Iterable<String> values)
+  {
+    int i = 0;
+    for (String s : values)
+      p.setProperty(key + "." + i++, s);
+    p.setProperty(key + ".count", Integer.toString(i));
+  }
+
+  private static List<String> getList(Properties p, String key)
+  {
+    int count = Integer.parseInt(p.getProperty(key + ".count"));
+
+    List<String> values = new ArrayList<>(count);
+    for (int i = 0; i < count; i++)
+    {
+      String s = p.getProperty(key + "." + i);
+      if (s == null)
+        throw new IllegalArgumentException("Incomplete descriptor.");
+      values.add(s);
+    }
+
+    return values;
+  }
+
+  @Override
+  public void addImport(String import_)
+  {
+    importList.add(import_);
+  }
+
+  @Override
+  public void addField(String string)
+  {
+    fieldList.add(string);
+  }
+
+  @Override
+  public void outputElementInstructions(StringReceiver receiver) throws IOException
+  {
+    for (String s : instructionList)
+      receiver.receive(s);
+  }
+
+  @Override
+  public void release()
+  {
+    // Everything is held in memory.
+  }
+
+  @Override
+  public String getRootInstanceGenericDecl()
+  {
+    return rootInstanceGenericDecl;
+  }
+
+  @Override
+  public String getRootInstanceName()
+  {
+    return rootInstanceName;
+  }
+
+  @Override
+  public String getRootInstanceDataType()
+  {
+    return rootInstanceDataType;
+  }
+
+  @Override
+  public String[] getImportList()
+  {
+    return importList.toArray(new String[] {});
+  }
+
+  @Override
+  public Handler[] getHandlerList()
+  {
+    return handlerList.toArray(new Handler[] {});
+  }
+
+  @Override
+  public String[] getFieldList()
+  {
+    return fieldList.toArray(new String[] {});
+  }
+
+  @Override
+  public String[] getTextStringUpdateInstructionList()
+  {
+    return textStringList.toArray(new String[] {});
+  }
+
+  @Override
+  public String[] getWarningList()
+  {
+    return warningList.toArray(new String[] {});
+  }
+}
@@ -0,0 +1,152 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.NoSuchElementException;
+
+/**
+ * <p>Iterates the results of a batch of conversions in the order they complete.  With one thread each file is converted
+ * on the calling thread when its result is requested.  With more threads the files are fed, largest first, through a
+ * {@link ConversionPipeline} and results are returned as each conversion finishes.
+ * <p>Every result is returned, including failures.  Once the last result has been returned the pipeline is stopped and
+ * the conversion cache is saved.
+ * 
+ * @author James David Foster
+ *
+ */
+class ConversionBatch implements Iterator<ConversionResult>, AutoCloseable
+{
+  /**
+   * <p>The converter that does the work.
+   */
+  private final FXML2Java converter;
+
+  /**
+   * <p>The source files, in the order given.
+   */
+  private final List<File> sources;
+
+  /**
+   * <p>The destination directory.
+   */
+  private final String destDir;
+
+  /**
+   * <p>The conversion stages, or null if files are converted on the calling thread.
+   */
+  private final ConversionPipeline pipeline;
+
+  /**
+   * <p>Number of results returned so far.
+   */
+  private int returned;
+
+  /**
+   * <p>Start a batch.
+   * 
+   * @param converter
+   * @param sources
+   * @param destDir
+   * @param threadCount
+   */
+  ConversionBatch(FXML2Java converter, List<File> sources, String destDir, int threadCount)
+  {
+    this.converter = converter;
+    this.sources = sources;
+    this.destDir = destDir;
+
+    if (threadCount > 1 && sources.size() > 1)
+    {
+      // Schedule the largest files first.
+      List<File> schedule = new ArrayList<>(sources);
+      schedule.sort(Comparator.comparingLong(File::length).reversed());
+
+      pipeline = new ConversionPipeline(converter, schedule, destDir, Math.min(threadCount, sources.size()));
+    }
+    else
+    {
+      pipeline = null;
+    }
+  }
+
+  @Override
+  public boolean hasNext()
+  {
+    return returned < sources.size();
+  }
+
+  @Override
+  public ConversionResult next()
+  {
+    if (!hasNext())
+      throw new NoSuchElementException();
+
+    ConversionResult result;
+    if (pipeline == null)
+    {
+      result = converter.convertForResult(sources.get(returned).toPath(), destDir);
+    }
+    else
+    {
+      try
+      {
+        result = pipeline.take();
+      }
+      catch (InterruptedException e)
+      {
+        Thread.currentThread().interrupt();
+        close();
+        throw new IllegalStateException(e);
+      }
+    }
+
+    if (++returned == sources.size())
+    {
+      close();
+
+      try
+      {
+        converter.saveCache();
+      }
+      catch (IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+    }
+
+    return result;
+  }
+
+  /**
+   * <p>Stop the worker threads.  Conversions which have not been returned are abandoned.
+   */
+  @Override
+  public void close()
+  {
+    if (pipeline != null)
+      pipeline.close();
+  }
+}
@@ -0,0 +1,170 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Properties;
+
+import fxml2java.util.Util;
+
+/**
+ * <p>Persistent record of the conversions that have already been done.  Each source file is stored with a hash of its
+ * content, the generator version and the generator options, along with the size and modification time of the destination
+ * file that was written for it.  If none of these have changed then the destination is up to date and the conversion can
+ * be skipped.
+ * 
+ * @author James David Foster
+ *
+ */
+class ConversionCache
+{
+  /**
+   * <p>The file the cache is persisted to.
+   */
+  private final File cacheFile;
+
+  /**
+   * <p>Conversion key for the generator version and options.  Included in every source hash.
+   */
+  private final String generatorKey;
+
+  /**
+   * <p>Cache entries.  Source file path to "hash;destination modified;destination length".  Properties is synchronized
+   * so entries can be read and written by parallel conversions.
+   */
+  private final Properties entries = new Properties();
+
+  /**
+   * <p>Load the cache from the given file if it exists.
+   * 
+   * @param cacheFile
+   * @param generatorKey
+   * @throws IOException
+   */
+  ConversionCache(File cacheFile, String generatorKey) throws IOException
+  {
+    this.cacheFile = cacheFile;
+    this.generatorKey = generatorKey;
+
+    if (cacheFile.exists())
+    {
+      try (InputStream is = new BufferedInputStream(new FileInputStream(cacheFile)))
+      {
+        entries.load(is);
+      }
+    }
+  }
+
+  /**
+   * <p>Calculate the hash for the source file content and the generator key.
+   * 
+   * @param source the source file content.  The buffer's position is not changed.
+   * @return hex string hash.
+   */
+  String hash(ByteBuffer source)
+  {
+    try
+    {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(generatorKey.getBytes(StandardCharsets.UTF_8));
+      md.update(source.duplicate());
+
+      StringBuilder sb = new StringBuilder();
+      for (byte b : md.digest())
+        sb.append(String.format("%02x", b));
+
+      return sb.toString();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // SHA-256 is required on every Java platform.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * <p>Return true if the destination was generated from a source with the given hash and has not changed since.
+   * 
+   * @param sourceFile
+   * @param destFile
+   * @param hash
+   * @return
+   */
+  boolean isUpToDate(Path sourceFile, File destFile, String hash)
+  {
+    return destFile.exists() && entry(hash, destFile).equals(entries.getProperty(Util.getLocation(sourceFile)));
+  }
+
+  /**
+   * <p>Record a completed conversion.
+   * 
+   * @param sourceFile
+   * @param destFile
+   * @param hash
+   */
+  void record(Path sourceFile, File destFile, String hash)
+  {
+    entries.setProperty(Util.getLocation(sourceFile), entry(hash, destFile));
+  }
+
+  /**
+   * <p>Write the cache back to its file.  The file is replaced in one step, so a reader never sees a partly written cache.
+   * 
+   * @throws IOException
+   */
+  void save() throws IOException
+  {
+    Path file = cacheFile.getAbsoluteFile().toPath();
+    Files.createDirectories(file.getParent());
+
+    // Name the temporary file after this thread so that concurrent writers do not collide.
+    Path tmp = file.resolveSibling(file.getFileName() + "." + ProcessHandle.current().pid() + "." + Thread.currentThread().getId() + ".tmp");
+    try
+    {
+      try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp)))
+      {
+        entries.store(os, "fxml2java conversion cache");
+      }
+
+      Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally
+    {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  private static String entry(String hash, File destFile)
+  {
+    return hash + ";" + destFile.lastModified() + ";" + destFile.length();
+  }
+}
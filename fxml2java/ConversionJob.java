@@ -0,0 +1,177 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.PrintStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.time.Duration;
+
+import fxml2java.element.FXMLJavaDescriptor;
+
+/**
+ * <p>The state of one file as it passes through the conversion stages in {@link FXML2Java}: read, resolve, merge and
+ * write.  Each stage fills in what the next stage needs.  A job is finished once its status is set, either by the write
+ * stage or early because it was skipped or failed.
+ * 
+ * @author James David Foster
+ *
+ */
+class ConversionJob
+{
+  /**
+   * <p>The source fxml file.  It can be in any file system, for example inside a jar opened as a zip file system.
+   */
+  final Path sourceFile;
+
+  /**
+   * <p>The generated Java file.
+   */
+  final File destFile;
+
+  /**
+   * <p>Path of the generated Java file relative to the destination directory.
+   */
+  final String destName;
+
+  /**
+   * <p>Status output for this file.
+   */
+  final PrintStream out;
+
+  /**
+   * <p>Buffer behind the status output, or null if the output is not captured.
+   */
+  private final ByteArrayOutputStream report;
+
+  /**
+   * <p>Cache hash of the source, or null if conversions are not cached.  Set by the read stage.
+   */
+  String sourceHash;
+
+  /**
+   * <p>The source fxml content.  Set by the read stage unless the content was given with the job.
+   */
+  ByteBuffer source;
+
+  /**
+   * <p>The existing destination content, or null if the destination is being created.  Set by the read stage.
+   */
+  byte[] existing;
+
+  /**
+   * <p>The resolved source.  Set by the resolve stage.
+   */
+  FXMLJavaDescriptor descriptor;
+
+  /**
+   * <p>The generated Java content.  Set by the merge stage.
+   */
+  byte[] content;
+
+  /**
+   * <p>What happened to the destination file, or null if the job has not finished.
+   */
+  ConversionResult.Status status;
+
+  /**
+   * <p>The reason the job failed, or null.
+   */
+  Throwable error;
+
+  /**
+   * <p>Time spent in the stages so far, in nanoseconds.  Time spent waiting between stages is not included.
+   */
+  long elapsed;
+
+  /**
+   * <p>Create a job whose status output is written to the given stream.
+   * 
+   * @param sourceFile
+   * @param destDir
+   * @param out
+   */
+  ConversionJob(Path sourceFile, String destDir, PrintStream out)
+  {
+    this(sourceFile, destDir, out, null);
+  }
+
+  /**
+   * <p>Create a job whose status output is captured for its result.
+   * 
+   * @param sourceFile
+   * @param destDir
+   */
+  ConversionJob(Path sourceFile, String destDir)
+  {
+    this(sourceFile, destDir, new ByteArrayOutputStream());
+  }
+
+  private ConversionJob(Path sourceFile, String destDir, ByteArrayOutputStream report)
+  {
+    this(sourceFile, destDir, new PrintStream(report, true), report);
+  }
+
+  private ConversionJob(Path sourceFile, String destDir, PrintStream out, ByteArrayOutputStream report)
+  {
+    this.sourceFile = sourceFile;
+    this.destName = FXML2Java.getDestinationName(sourceFile);
+    this.destFile = new File(destDir + "/" + destName);
+    this.out = out;
+    this.report = report;
+  }
+
+  /**
+   * <p>Return true once the job needs no more stages.
+   * 
+   * @return
+   */
+  boolean isFinished()
+  {
+    return status != null;
+  }
+
+  /**
+   * <p>Finish the job as failed.
+   * 
+   * @param error
+   */
+  void fail(Throwable error)
+  {
+    this.error = error;
+    this.status = ConversionResult.Status.FAILED;
+  }
+
+  /**
+   * <p>Describe the outcome of a finished job.  The content buffers are released.
+   * 
+   * @return
+   */
+  ConversionResult toResult()
+  {
+    source = null;
+    existing = null;
+    descriptor = null;
+    content = null;
+
+    return new ConversionResult(sourceFile, destFile, status, Duration.ofNanos(elapsed), error, (report != null) ? report.toString() : "");
+  }
+}
@@ -0,0 +1,175 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.File;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * <p>Runs the conversion stages of a batch concurrently.  Each stage (read, resolve, merge and write) has its own worker
+ * threads and hands jobs to the next stage through a bounded queue, so one file can be read or written while others are
+ * being resolved or merged.  When a queue is full the stage feeding it waits, which keeps the number of files held in
+ * memory bounded however large the batch is.
+ * <p>A job that finishes early, because it was skipped or failed, goes straight to the results.  Results are taken in the
+ * order they finish.
+ * 
+ * @author James David Foster
+ *
+ */
+class ConversionPipeline implements AutoCloseable
+{
+  /**
+   * <p>Jobs waiting to be read.
+   */
+  private final BlockingQueue<ConversionJob> toRead = new LinkedBlockingQueue<>();
+
+  /**
+   * <p>Jobs waiting to be resolved.
+   */
+  private final BlockingQueue<ConversionJob> toResolve;
+
+  /**
+   * <p>Jobs waiting to be merged.
+   */
+  private final BlockingQueue<ConversionJob> toMerge;
+
+  /**
+   * <p>Jobs waiting to be written.
+   */
+  private final BlockingQueue<ConversionJob> toWrite;
+
+  /**
+   * <p>Finished jobs.
+   */
+  private final BlockingQueue<ConversionJob> finished;
+
+  /**
+   * <p>Worker threads for every stage.
+   */
+  private final ExecutorService pool;
+
+  /**
+   * <p>Start converting the given files.  Each stage gets the given number of worker threads and each queue holds twice
+   * that many jobs.
+   * 
+   * @param converter
+   * @param sources the files to convert, in the order they should be read.
+   * @param destDir
+   * @param threadCount worker threads per stage.
+   */
+  ConversionPipeline(FXML2Java converter, List<File> sources, String destDir, int threadCount)
+  {
+    int capacity = threadCount * 2;
+    toResolve = new ArrayBlockingQueue<>(capacity);
+    toMerge = new ArrayBlockingQueue<>(capacity);
+    toWrite = new ArrayBlockingQueue<>(capacity);
+    finished = new ArrayBlockingQueue<>(capacity);
+
+    for (File f : sources)
+      toRead.add(new ConversionJob(f.toPath(), destDir));
+
+    // Daemon threads so that an abandoned pipeline does not keep the JVM alive.
+    pool = Executors.newFixedThreadPool(threadCount * 4, (r) -> {
+      Thread t = new Thread(r, "fxml2java-pipeline");
+      t.setDaemon(true);
+      return t;
+    });
+
+    for (int i = 0; i < threadCount; i++)
+    {
+      pool.execute(() -> runStage(toRead, converter::read, toResolve));
+      pool.execute(() -> runStage(toResolve, converter::resolve, toMerge));
+      pool.execute(() -> runStage(toMerge, converter::merge, toWrite));
+      pool.execute(() -> runStage(toWrite, converter::write, finished));
+    }
+  }
+
+  /**
+   * <p>Wait for the next job to finish and return its result.
+   * 
+   * @return
+   * @throws InterruptedException
+   */
+  ConversionResult take() throws InterruptedException
+  {
+    return finished.take().toResult();
+  }
+
+  /**
+   * <p>Stop the worker threads.  Jobs which have not been taken are abandoned.
+   */
+  @Override
+  public void close()
+  {
+    pool.shutdownNow();
+  }
+
+  /**
+   * <p>Worker loop for one stage.  Runs until the pipeline is closed.  A job whose stage throws anything fails.
+   * 
+   * @param in
+   * @param stage
+   * @param out
+   */
+  private void runStage(BlockingQueue<ConversionJob> in, Stage stage, BlockingQueue<ConversionJob> out)
+  {
+    try
+    {
+      while (true)
+      {
+        ConversionJob job = in.take();
+
+        long start = System.nanoTime();
+        try
+        {
+          stage.run(job);
+        }
+        catch (Throwable e)
+        {
+          // Errors too, such as a stack overflow on a deeply nested form: a job that is not passed on would never be
+          // taken, and the stage would stop.
+          job.fail(e);
+        }
+        job.elapsed += System.nanoTime() - start;
+
+        if (job.isFinished())
+          finished.put(job);
+        else
+          out.put(job);
+      }
+    }
+    catch (InterruptedException e)
+    {
+      // Closed - stop working.
+    }
+  }
+
+  /**
+   * <p>One conversion stage.
+   */
+  private interface Stage
+  {
+    void run(ConversionJob job) throws Exception;
+  }
+}
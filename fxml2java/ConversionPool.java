@@ -0,0 +1,178 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.PrintStream;
+import java.nio.file.Path;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * <p>A pool of worker threads for converting fxml files in parallel.  Each conversion writes its status output into its own
+ * buffer.  The owner decides the order the buffers are reported in so that the output is the same as a sequential run.
+ * 
+ * @author James David Foster
+ *
+ */
+class ConversionPool implements AutoCloseable
+{
+  /**
+   * <p>The converter that does the work.
+   */
+  private final FXML2Java converter;
+
+  /**
+   * <p>Worker threads.
+   */
+  private final ExecutorService pool;
+
+  /**
+   * <p>Create a pool with the given number of worker threads.
+   * 
+   * @param converter
+   * @param threadCount
+   */
+  ConversionPool(FXML2Java converter, int threadCount)
+  {
+    this.converter = converter;
+    this.pool = Executors.newFixedThreadPool(Math.max(1, threadCount));
+  }
+
+  /**
+   * <p>Submit a source file for conversion.
+   * 
+   * @param sourceFile
+   * @param destDir
+   * @return the pending conversion, which must be passed to {@link #report(Pending, PrintStream)}.
+   */
+  Pending submit(Path sourceFile, String destDir)
+  {
+    ByteArrayOutputStream report = new ByteArrayOutputStream();
+
+    Future<Void> result = pool.submit(() -> {
+      PrintStream out = new PrintStream(report, true);
+      out.println();
+      out.println();
+
+      converter.convert(sourceFile.toAbsolutePath(), destDir, out);
+      return null;
+    });
+
+    return new Pending(report, result);
+  }
+
+  /**
+   * <p>Wait for the given conversion to finish and write its status output to the given stream.  If the conversion failed
+   * then the failure is rethrown after its output has been written.
+   * 
+   * @param pending
+   * @param out
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  void report(Pending pending, PrintStream out) throws IOException, ParserConfigurationException, SAXException
+  {
+    try
+    {
+      pending.result.get();
+    }
+    catch (InterruptedException e)
+    {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException();
+    }
+    catch (ExecutionException e)
+    {
+      out.print(pending.report.toString());
+      rethrow(e.getCause());
+    }
+
+    out.print(pending.report.toString());
+  }
+
+  /**
+   * <p>Stop the worker threads.  Any conversions which have not been reported are abandoned.
+   */
+  @Override
+  public void close()
+  {
+    pool.shutdownNow();
+  }
+
+  /**
+   * <p>Rethrow the cause of a failed worker conversion as the checked exception type thrown by
+   * {@link FXML2Java#convert(String, String)}.
+   * 
+   * @param cause
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  private static void rethrow(Throwable cause) throws IOException, ParserConfigurationException, SAXException
+  {
+    if (cause instanceof IOException)
+      throw (IOException) cause;
+    if (cause instanceof ParserConfigurationException)
+      throw (ParserConfigurationException) cause;
+    if (cause instanceof SAXException)
+      throw (SAXException) cause;
+    if (cause instanceof RuntimeException)
+      throw (RuntimeException) cause;
+    if (cause instanceof Error)
+      throw (Error) cause;
+
+    throw new IOException(cause);
+  }
+
+  /**
+   * <p>A submitted conversion and its status output buffer.
+   */
+  static class Pending
+  {
+    private final ByteArrayOutputStream report;
+
+    private final Future<Void> result;
+
+    private Pending(ByteArrayOutputStream report, Future<Void> result)
+    {
+      this.report = report;
+      this.result = result;
+    }
+
+    /**
+     * <p>Return true if the conversion has finished, successfully or not.
+     * 
+     * @return
+     */
+    boolean isDone()
+    {
+      return result.isDone();
+    }
+  }
+}
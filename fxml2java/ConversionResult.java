@@ -0,0 +1,158 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.File;
+import java.nio.file.FileSystems;
+import java.nio.file.Path;
+import java.time.Duration;
+
+/**
+ * <p>The outcome of converting one source file in a batch.  See {@link FXML2Java#convertAll(java.util.Collection, String)}.
+ * 
+ * @author James David Foster
+ *
+ */
+public class ConversionResult
+{
+  /**
+   * <p>What happened to the destination file.
+   */
+  public enum Status
+  {
+    /**
+     * <p>The destination file did not exist and was created.
+     */
+    CREATED,
+
+    /**
+     * <p>The destination file existed and was rewritten with new content.
+     */
+    UPDATED,
+
+    /**
+     * <p>The destination file was already up to date and was not written.
+     */
+    SKIPPED,
+
+    /**
+     * <p>The conversion failed.  See {@link ConversionResult#getError()}.
+     */
+    FAILED
+  }
+
+  private final Path sourceFile;
+
+  private final File destinationFile;
+
+  private final Status status;
+
+  private final Duration duration;
+
+  private final Throwable error;
+
+  private final String report;
+
+  ConversionResult(Path sourceFile, File destinationFile, Status status, Duration duration, Throwable error, String report)
+  {
+    this.sourceFile = sourceFile;
+    this.destinationFile = destinationFile;
+    this.status = status;
+    this.duration = duration;
+    this.error = error;
+    this.report = report;
+  }
+
+  /**
+   * <p>Get the source fxml file.
+   * 
+   * @return the file, or null if the source is not in the default file system.
+   * @see #getSourcePath()
+   */
+  public File getSourceFile()
+  {
+    return (sourceFile.getFileSystem() == FileSystems.getDefault()) ? sourceFile.toFile() : null;
+  }
+
+  /**
+   * <p>Get the source fxml file, which can be in any file system.
+   * 
+   * @return
+   */
+  public Path getSourcePath()
+  {
+    return sourceFile;
+  }
+
+  /**
+   * <p>Get the generated Java file.
+   * 
+   * @return
+   */
+  public File getDestinationFile()
+  {
+    return destinationFile;
+  }
+
+  /**
+   * <p>Get what happened to the destination file.
+   * 
+   * @return
+   */
+  public Status getStatus()
+  {
+    return status;
+  }
+
+  /**
+   * <p>Get the time taken to convert the file.
+   * 
+   * @return
+   */
+  public Duration getDuration()
+  {
+    return duration;
+  }
+
+  /**
+   * <p>Get the reason the conversion failed, or null if it did not fail.
+   * 
+   * @return
+   */
+  public Throwable getError()
+  {
+    return error;
+  }
+
+  /**
+   * <p>Get the status output the conversion would have written to the console, including any warnings.
+   * 
+   * @return
+   */
+  public String getReport()
+  {
+    return report;
+  }
+
+  @Override
+  public String toString()
+  {
+    return status + " " + sourceFile + ((error != null) ? " " + error : "");
+  }
+}
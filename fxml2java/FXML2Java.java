@@ -20,18 +20,40 @@ under the License.
 package fxml2java;
 
 import java.io.BufferedWriter;
+import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
+import java.io.PrintStream;
+import java.io.StringWriter;
+import java.nio.ByteBuffer;
+import java.nio.charset.Charset;
+import java.nio.file.FileAlreadyExistsException;
 import java.nio.file.Files;
 import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.Date;
+import java.util.Deque;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.ResourceBundle;
 import java.util.Set;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
 
 import javax.xml.parsers.ParserConfigurationException;
 
@@ -44,8 +66,14 @@ import com.github.javaparser.ast.NodeList;
 import com.github.javaparser.ast.body.ClassOrInterfaceDeclaration;
 import com.github.javaparser.ast.body.MethodDeclaration;
 
+import fxml2java.element.ElementHandlers;
 import fxml2java.element.FXMLDOMResolver;
 import fxml2java.element.FXMLJavaDescriptor;
+import fxml2java.element.FXMLStAXResolver;
+import fxml2java.element.ParseCache;
+import fxml2java.element.ResolvedTree;
+import fxml2java.element.ResolverOptions;
+import fxml2java.util.Util;
 
 /**
  * <p>
@@ -76,6 +104,236 @@ import fxml2java.element.FXMLJavaDescriptor;
  */
 public class FXML2Java
 {
+  /**
+   * <p>
+   * Version of the generator. This must be changed whenever a change to the
+   * converter changes the generated code, so that cached conversions made by an
+   * older version are not reused.
+   */
+  public static final String GENERATOR_VERSION = "5";
+  
+  /**
+   * <p>
+   * Indentation used in the generated code.
+   */
+  private static final int INDENT_SPACES = 2;
+  
+  /**
+   * <p>
+   * Number of worker threads used by {@link #convertDirectory(String, String)}.
+   * A value of 1 converts the files one after another on the calling thread.
+   */
+  private int threadCount = 1;
+  
+  /**
+   * <p>
+   * Set the number of worker threads used to convert a directory of fxml files.
+   * Each file is resolved independently so the files can be converted in
+   * parallel. Status output is still reported in the same order as a sequential
+   * run.
+   * 
+   * @param threadCount number of worker threads, 1 or more.
+   */
+  public void setThreadCount(int threadCount)
+  {
+    if (threadCount < 1)
+      throw new IllegalArgumentException("Thread count must be 1 or more.");
+    
+    this.threadCount = threadCount;
+  }
+  
+  /**
+   * <p>
+   * True if sources are resolved with the streaming (StAX) parser instead of
+   * the DOM parser.
+   */
+  private boolean streamingParser = false;
+  
+  /**
+   * <p>
+   * Choose the parser used to read fxml sources. The streaming parser reads each
+   * source in a single pass and builds a smaller tree. Both produce the same
+   * generated code, so either can be used to check the other.
+   * 
+   * @param streamingParser true to use the streaming (StAX) parser, false to
+   *          use the DOM parser.
+   */
+  public void setStreamingParser(boolean streamingParser)
+  {
+    this.streamingParser = streamingParser;
+  }
+  
+  /**
+   * <p>
+   * Conversion cache, or null if conversions are not cached.
+   */
+  private ConversionCache cache;
+  
+  /**
+   * <p>
+   * Set the file used to cache conversions between runs. When a cache file is
+   * set, a source whose content, generator version and generator options are
+   * unchanged since the last conversion is not converted again, provided its
+   * destination file has not changed either.
+   * 
+   * @param cacheFile the cache file, or null to disable caching.
+   * @throws IOException if an existing cache file can not be read.
+   */
+  public void setCacheFile(String cacheFile) throws IOException
+  {
+    cache = (cacheFile != null) ? new ConversionCache(new File(cacheFile), getGeneratorKey()) : null;
+  }
+  
+  /**
+   * <p>
+   * Shared cache of resolved sources, or null if resolved sources are not
+   * shared.
+   */
+  private SharedCache sharedCache;
+  
+  /**
+   * <p>
+   * Set a directory in which resolved sources are shared. The directory can be
+   * shared by several developers and build agents, for example on a network
+   * mount. A source with the same content, location below its source root and
+   * generator version as one resolved before is fetched from the directory
+   * instead of being resolved again. Entries are evicted after each conversion
+   * run once they are older than the maximum age, then least recently used
+   * first while the directory is larger than the maximum size.
+   * 
+   * @param directory the cache directory, or null to stop sharing.
+   * @param maxBytes maximum total size of the entries in bytes, or 0 for no
+   *          limit.
+   * @param maxAge maximum time since an entry was last used, or null for no
+   *          limit.
+   * @throws IOException if the directory can not be created.
+   */
+  public void setSharedCacheDirectory(String directory, long maxBytes, Duration maxAge) throws IOException
+  {
+    sharedCache = (directory != null) ? new SharedCache(new File(directory).toPath(), getGeneratorKey(), maxBytes, maxAge) : null;
+  }
+  
+  /**
+   * <p>
+   * Cache of parsed sources, or null if every source is parsed.
+   */
+  private ParseCache parseCache;
+  
+  /**
+   * <p>
+   * Set a directory in which parsed sources are kept between runs. A source
+   * whose content has not changed since it was last parsed by the same
+   * generator version is resolved from its stored element tree without parsing
+   * the XML again, which saves most of the work when a watched file is touched
+   * but not changed. Only the latest tree of each source file is kept.
+   * 
+   * @param directory the cache directory, or null to always parse.
+   * @throws IOException if the directory can not be created.
+   */
+  public void setParseCacheDirectory(String directory) throws IOException
+  {
+    parseCache = (directory != null) ? new ParseCache(new File(directory).toPath(), getGeneratorKey()) : null;
+  }
+  
+  /**
+   * <p>
+   * Latest resolution of each source file by absolute path, or null if
+   * sources are not resolved incrementally.
+   */
+  private Map<String, ResolvedTree> resolvedTrees;
+  
+  /**
+   * <p>
+   * Resolve edited sources incrementally. The latest resolution of each
+   * source is kept, and when the source is converted again only the elements
+   * whose FXML has changed are resolved again; everything else is reused. The
+   * generated code is the same as a full conversion. Intended for a converter
+   * that is kept running, such as one used by the watcher or daemon. If a
+   * parse cache directory is set, resolutions are kept there as well so they
+   * survive a restart.
+   * 
+   * @param incremental true to resolve incrementally.
+   */
+  public void setIncremental(boolean incremental)
+  {
+    resolvedTrees = incremental ? new ConcurrentHashMap<>() : null;
+  }
+  
+  /**
+   * <p>
+   * Pool that large subtrees of a source are resolved in, or null to resolve
+   * each source on one thread.
+   */
+  private ForkJoinPool resolutionPool;
+  
+  /**
+   * <p>
+   * Resolve large subtrees of each source in parallel, using the common
+   * fork/join pool. Helps with very large forms; the generated code is the same
+   * as when resolving on one thread. Sources resolved incrementally are
+   * resolved on one thread.
+   * 
+   * @param parallel true to resolve subtrees in parallel.
+   */
+  public void setParallelResolution(boolean parallel)
+  {
+    resolutionPool = parallel ? ForkJoinPool.commonPool() : null;
+  }
+  
+  /**
+   * <p>
+   * True if element instructions are flushed to a temporary file as each
+   * element is resolved.
+   */
+  private boolean streamingOutput = false;
+  
+  /**
+   * <p>
+   * Flush the instructions of each element to a temporary file as soon as the
+   * element is resolved, and read them back when the code is generated. Only
+   * the fields, imports, handlers and i18n instructions of a form are kept in
+   * memory while it is resolved, which keeps the memory needed for very large
+   * forms down. The generated code is the same. Sources resolved incrementally
+   * are not streamed, and streamed sources are resolved on one thread.
+   * 
+   * @param streamingOutput true to flush element instructions as they are
+   *          resolved.
+   */
+  public void setStreamingOutput(boolean streamingOutput)
+  {
+    this.streamingOutput = streamingOutput;
+  }
+  
+  /**
+   * <p>
+   * Get the key describing the generator version and every option that affects
+   * the generated code, including the element handler providers in use.
+   * 
+   * @return
+   */
+  String getGeneratorKey()
+  {
+    return "version=" + GENERATOR_VERSION + ";indent=" + INDENT_SPACES + ";providers=" + ElementHandlers.getProviderKey();
+  }
+  
+  /**
+   * <p>
+   * Write the conversion cache back to its file if caching is enabled, and
+   * evict old entries from the shared cache directory if one is set.  Saves
+   * from concurrent conversions, such as the daemon's connections, are done one
+   * at a time.
+   * 
+   * @throws IOException
+   */
+  synchronized void saveCache() throws IOException
+  {
+    if (cache != null)
+      cache.save();
+    
+    if (sharedCache != null)
+      sharedCache.evict();
+  }
+  
   /**
    * <p>
    * Convert all .fxml files in the given source directory to plain Java objects.
@@ -91,25 +349,334 @@ public class FXML2Java
    */
   public void convertDirectory(String sourceDirectory, String destDir) throws IOException, ParserConfigurationException, SAXException
   {
-    // List the files in the source directory and process all that end in .fxml.
-    File directory = new File(sourceDirectory);
+    convertDirectory(sourceDirectory, destDir, System.out);
+  }
+  
+  /**
+   * <p>
+   * Convert all .fxml files in the given source directory, writing status output
+   * to the given stream.
+   * 
+   * @param sourceDirectory
+   * @param destDir
+   * @param out
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  void convertDirectory(String sourceDirectory, String destDir, PrintStream out) throws IOException, ParserConfigurationException, SAXException
+  {
+    try
+    {
+      // List the files in the source directory and process all that end in .fxml.
+      File directory = new File(sourceDirectory);
+      
+      if (!directory.isDirectory())
+        throw new IllegalArgumentException();
+      
+      // List .fxml files in the source directory.
+      File[] listFiles = directory.listFiles((f) -> {
+        return f.getName().toLowerCase().endsWith(".fxml");
+      });
+      
+      // Use the worker pool if more than one thread has been requested.
+      if (threadCount > 1)
+      {
+        convertInParallel(listFiles, destDir, out);
+        return;
+      }
+      
+      // Process each file.
+      for (File f : listFiles)
+      {
+        out.println();
+        out.println();
+        
+        convert(f.getAbsolutePath(), destDir, out);
+      }
+    }
+    finally
+    {
+      saveCache();
+    }
+  }
+  
+  /**
+   * <p>
+   * Convert the given files using a pool of worker threads. The largest files
+   * are scheduled first so that a big form is not left until the end of the run.
+   * Each conversion reports into its own buffer and the buffers are written out
+   * in listing order, so the output is the same as a sequential run. If any
+   * conversion fails then the first failure in listing order is thrown once the
+   * earlier files have been reported.
+   * 
+   * @param listFiles
+   * @param destDir
+   * @param out
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  private void convertInParallel(File[] listFiles, String destDir, PrintStream out) throws IOException, ParserConfigurationException, SAXException
+  {
+    // Schedule the largest files first.
+    File[] schedule = listFiles.clone();
+    Arrays.sort(schedule, Comparator.comparingLong(File::length).reversed());
+    
+    try (ConversionPool pool = new ConversionPool(this, Math.min(threadCount, schedule.length)))
+    {
+      Map<File, ConversionPool.Pending> results = new HashMap<>();
+      for (File f : schedule)
+        results.put(f, pool.submit(f.toPath(), destDir));
+      
+      // Output the reports in listing order.
+      for (File f : listFiles)
+        pool.report(results.get(f), out);
+    }
+  }
+  
+  /**
+   * <p>
+   * Convert every .fxml file below the given source root. Directories are walked
+   * recursively and each file is converted as soon as it is found, so the whole
+   * tree is never listed up front.
+   * <p>
+   * Include and exclude patterns are globs (see
+   * {@link java.nio.file.FileSystem#getPathMatcher(String)}) matched against the
+   * path relative to the source root, for example
+   * <code>{basis/*,**&#47;basis/*}</code> for the files of every directory named
+   * basis. <code>**&#47;</code> needs at least one directory before the rest of
+   * the pattern, so <code>**&#47;basis/*</code> alone would not match basis at the
+   * root. A file is converted if it matches any include pattern (or no include patterns
+   * are given) and no exclude pattern. A directory that matches an exclude pattern
+   * is not walked at all.
+   * <p>
+   * When more than one thread has been set, files are handed to the worker pool
+   * in the order they are found and reported in that order.
+   * 
+   * @param sourceRoot
+   * @param destDir
+   * @param includes include globs, may be empty.
+   * @param excludes exclude globs, may be empty.
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  public void convertTree(String sourceRoot, String destDir, String[] includes, String[] excludes) throws IOException, ParserConfigurationException, SAXException
+  {
+    convertTree(new File(sourceRoot).toPath(), destDir, includes, excludes);
+  }
+  
+  /**
+   * <p>
+   * Convert every .fxml file below the given source root, which can be in any
+   * file system. For example, the forms in a jar can be converted in place by
+   * opening the jar as a zip file system and passing its root directory or a
+   * directory inside it. Otherwise the same as
+   * {@link #convertTree(String, String, String[], String[])}.
+   * 
+   * @param root
+   * @param destDir
+   * @param includes include globs, may be empty.
+   * @param excludes exclude globs, may be empty.
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  public void convertTree(Path root, String destDir, String[] includes, String[] excludes) throws IOException, ParserConfigurationException, SAXException
+  {
+    try
+    {
+      if (!Files.isDirectory(root))
+        throw new IllegalArgumentException();
+      
+      SourceTreeWalker walker = new SourceTreeWalker(root, includes, excludes);
+      
+      if (threadCount > 1)
+      {
+        try (ConversionPool pool = new ConversionPool(this, threadCount))
+        {
+          // Conversions waiting to be reported. Reporting as they finish keeps the
+          // number of buffered conversions bounded.
+          Deque<ConversionPool.Pending> pending = new ArrayDeque<>();
+          
+          walker.walk((f) -> {
+            pending.add(pool.submit(f, destDir));
+            
+            if (pending.size() > threadCount * 4)
+              pool.report(pending.poll(), System.out);
+            
+            while (!pending.isEmpty() && pending.peek().isDone())
+              pool.report(pending.poll(), System.out);
+          });
+          
+          while (!pending.isEmpty())
+            pool.report(pending.poll(), System.out);
+        }
+      }
+      else
+      {
+        walker.walk((f) -> {
+          System.out.println();
+          System.out.println();
+          
+          convert(f.toAbsolutePath(), destDir, System.out);
+        });
+      }
+    }
+    finally
+    {
+      saveCache();
+    }
+  }
+  
+  /**
+   * <p>
+   * Convert a batch of .fxml files and return a result for each one as it
+   * completes. Each result says whether the destination file was created,
+   * updated, skipped because it was already up to date, or whether the
+   * conversion failed, along with the destination file, the time taken and the
+   * status output that would otherwise have been written to the console.
+   * <p>
+   * A failed conversion is returned as a {@link ConversionResult.Status#FAILED}
+   * result and the rest of the batch carries on.
+   * <p>
+   * With one thread each file is converted when the stream asks for its result,
+   * in the order given. With more threads the files are converted by a worker
+   * pool and results are returned in the order they finish. The conversion
+   * cache is saved once the last result has been returned. Closing the stream
+   * before then abandons the remaining conversions.
+   * 
+   * <pre>
+   * try (Stream&lt;ConversionResult&gt; results = fxml2Java.convertAll(sources, destDir))
+   * {
+   *   results.filter((r) -&gt; r.getStatus() == ConversionResult.Status.FAILED).forEach(System.out::println);
+   * }
+   * </pre>
+   * 
+   * @param sourceFiles
+   * @param destDir
+   * @return the results, in completion order.
+   */
+  public Stream<ConversionResult> convertAll(Collection<String> sourceFiles, String destDir)
+  {
+    List<File> sources = new ArrayList<>();
+    for (String sourceFile : sourceFiles)
+      sources.add(new File(sourceFile));
     
-    if (!directory.isDirectory())
-      throw new IllegalArgumentException();
+    ConversionBatch batch = new ConversionBatch(this, sources, destDir, threadCount);
     
-    // List .fxml files in the source directory.
-    File[] listFiles = directory.listFiles((f) -> {
-      return f.getName().toLowerCase().endsWith(".fxml");
-    });
+    Spliterator<ConversionResult> split = Spliterators.spliterator(batch, sources.size(), Spliterator.NONNULL | Spliterator.SIZED);
+    return StreamSupport.stream(split, false).onClose(batch::close);
+  }
+  
+  /**
+   * <p>
+   * Publish the results of converting a batch of .fxml files. Each subscriber
+   * runs the batch again as for {@link #convertAll(Collection, String)}, on a
+   * thread of its own. Results are published as they complete and the
+   * subscriber's demand limits how far the batch runs ahead of it. The
+   * subscriber is completed once every file has been reported, or completed
+   * exceptionally if the conversion cache can not be saved. Cancelling the
+   * subscription abandons the remaining conversions.
+   * 
+   * @param sourceFiles
+   * @param destDir
+   * @return
+   */
+  public Flow.Publisher<ConversionResult> publishAll(Collection<String> sourceFiles, String destDir)
+  {
+    List<String> sources = new ArrayList<>(sourceFiles);
     
-    // Process each file.
-    for (File f : listFiles)
-    {
-      System.out.println();
-      System.out.println();
+    return (subscriber) -> {
+      SubmissionPublisher<ConversionResult> publisher = new SubmissionPublisher<>();
+      publisher.subscribe(subscriber);
       
-      convert(f.getAbsolutePath(), destDir);
+      Thread t = new Thread(() -> {
+        try (Stream<ConversionResult> results = convertAll(sources, destDir))
+        {
+          Iterator<ConversionResult> it = results.iterator();
+          
+          // Stop early if the subscriber has cancelled.
+          while (it.hasNext() && publisher.hasSubscribers())
+            publisher.submit(it.next());
+          
+          publisher.close();
+        }
+        catch (RuntimeException e)
+        {
+          publisher.closeExceptionally(e);
+        }
+      }, "fxml2java-publisher");
+      t.setDaemon(true);
+      t.start();
+    };
+  }
+  
+  /**
+   * <p>
+   * Convert a single .fxml file and describe the outcome. Failures are captured
+   * in the result rather than thrown.
+   * 
+   * @param sourceFile
+   * @param destDir
+   * @return
+   */
+  ConversionResult convertForResult(Path sourceFile, String destDir)
+  {
+    return convertForResult(new ConversionJob(sourceFile, destDir));
+  }
+  
+  /**
+   * <p>
+   * Convert FXML content held in memory, for example an editor buffer that has
+   * not been saved. The content is converted as if it were the content of the
+   * given source file, which names the generated class and is used to find
+   * resources referenced by the FXML, but the file itself is not read and need
+   * not exist. Failures are captured in the result rather than thrown.
+   * 
+   * @param sourceFile
+   * @param content
+   * @param destDir
+   * @return
+   * @throws IOException if the conversion cache can not be saved.
+   */
+  public ConversionResult convert(String sourceFile, byte[] content, String destDir) throws IOException
+  {
+    ConversionJob job = new ConversionJob(new File(sourceFile).toPath(), destDir);
+    job.source = ByteBuffer.wrap(content);
+    
+    try
+    {
+      return convertForResult(job);
+    }
+    finally
+    {
+      saveCache();
+    }
+  }
+  
+  /**
+   * <p>
+   * Run a job's stages, capturing any failure in its result.
+   * 
+   * @param job
+   * @return
+   */
+  private ConversionResult convertForResult(ConversionJob job)
+  {
+    long start = System.nanoTime();
+    try
+    {
+      runStages(job);
     }
+    catch (Exception e)
+    {
+      job.fail(e);
+    }
+    job.elapsed = System.nanoTime() - start;
+    
+    return job.toResult();
   }
   
   /**
@@ -126,110 +693,352 @@ public class FXML2Java
    */
   public void convert(String sourceFile, String destDir) throws IOException, ParserConfigurationException, SAXException
   {
-    // Check the existence of destination file. Create if required.
-    //
-    // Calculate the dest file. Get last path entry and replace ".fxml" with ".java"
-    File srcFile = new File(sourceFile);
-    Path srcPath = srcFile.toPath();
-    String srcName = srcPath.getFileName().toString();
-    // Convert source name to path.
-    char[] srcFileName = srcName.toCharArray();
-    
-    int inst = 0;
-    int extensionLoc = 0;
-    for (int i = srcFileName.length - 1; i >= 0; i--)
+    convert(new File(sourceFile).toPath(), destDir);
+  }
+  
+  /**
+   * <p>
+   * Convert a single .fxml file in any file system to a plain Java object. A
+   * form inside a jar can be converted by opening the jar as a zip file system;
+   * the form is read from the archive in place. Resources referenced by the
+   * form are found relative to it in the same file system. The generated file is
+   * written below the destination directory as usual.
+   * 
+   * @param sourceFile
+   * @param destDir
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  public void convert(Path sourceFile, String destDir) throws IOException, ParserConfigurationException, SAXException
+  {
+    try
     {
-      //
-      if ((srcFileName[i] == '.'))
-      {
-        if ((inst++ > 0))
-        {
-          srcFileName[i] = '/';
-        }
-        else
-        {
-          extensionLoc = i;
-        }
-      }
+      convert(sourceFile, destDir, System.out);
     }
+    finally
+    {
+      saveCache();
+    }
+  }
+  
+  /**
+   * <p>
+   * Convert a single .fxml file, writing status output to the given stream.
+   * 
+   * @param sourceFile
+   * @param destDir
+   * @param out
+   * @return what happened to the destination file.
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  ConversionResult.Status convert(String sourceFile, String destDir, PrintStream out) throws IOException, ParserConfigurationException, SAXException
+  {
+    return convert(new File(sourceFile).toPath(), destDir, out);
+  }
+  
+  /**
+   * <p>
+   * Convert a single .fxml file in any file system, writing status output to
+   * the given stream.
+   * 
+   * @param sourceFile
+   * @param destDir
+   * @param out
+   * @return what happened to the destination file.
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  ConversionResult.Status convert(Path sourceFile, String destDir, PrintStream out) throws IOException, ParserConfigurationException, SAXException
+  {
+    ConversionJob job = new ConversionJob(sourceFile, destDir, out);
     
-    // Replace the 'fxml' with '.java' for the generated filename.
-    String destName = new String(srcFileName).substring(0, extensionLoc);
-    srcName = destName + ".java";
+    runStages(job);
     
-    File destFile = new File(destDir + "/" + srcName);
-    Path packageFile = new File(srcName).toPath();
+    return job.status;
+  }
+  
+  /**
+   * <p>
+   * Run the conversion stages for a job one after another on the calling thread.
+   * 
+   * @param job
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  private void runStages(ConversionJob job) throws IOException, ParserConfigurationException, SAXException
+  {
+    read(job);
     
-    String packge = packageFile.getParent().toString().replaceAll("\\\\", ".");
+    if (!job.isFinished())
+      resolve(job);
     
-    String className = packageFile.getName(packageFile.getNameCount() - 1).toString();
+    if (!job.isFinished())
+      merge(job);
     
+    if (!job.isFinished())
+      write(job);
+  }
+  
+  /**
+   * <p>
+   * Read stage. Read the source, unless its content was given with the job,
+   * and, if it exists, the destination file. The source is read with a single
+   * bulk read, or memory mapped if it is large. The job is finished here if
+   * the cache shows the destination is up to date.
+   * 
+   * @param job
+   * @throws IOException
+   */
+  void read(ConversionJob job) throws IOException
+  {
     // Get resource bundle.
     ResourceBundle rb = ResourceBundle.getBundle("fxml2java.strings");
     
     // Output status.
-    System.out.println(String.format(rb.getString("startconv"), sourceFile));
+    job.out.println(String.format(rb.getString("startconv"), job.sourceFile));
     
-    if (!destFile.exists())
+    if (job.source == null)
+      job.source = Util.readFile(job.sourceFile);
+    
+    // Skip the conversion if the source and destination are unchanged since the
+    // last conversion.
+    if (cache != null)
+    {
+      job.sourceHash = cache.hash(job.source);
+      
+      if (cache.isUpToDate(job.sourceFile, job.destFile, job.sourceHash))
+      {
+        job.out.println(String.format(rb.getString("update.nodiff"), job.destFile.getAbsolutePath()));
+        job.status = ConversionResult.Status.SKIPPED;
+        return;
+      }
+    }
+    
+    // Check the existence of destination file. Create if required.
+    if (!job.destFile.exists())
     {
       // Output status.
-      System.out.println(String.format(rb.getString("create"), destFile.getAbsolutePath()));
+      job.out.println(String.format(rb.getString("create"), job.destFile.getAbsolutePath()));
+    }
+    else
+    {
+      // Output status.
+      job.out.println(String.format(rb.getString("update"), job.destFile.getAbsolutePath()));
+      
+      // Compare dates for src and dest. Only update if they are different.
+      job.out.println(String.format(rb.getString("update.diff"), job.sourceFile.getFileName(), new Date(Files.getLastModifiedTime(job.sourceFile).toMillis()), new Date(job.destFile.lastModified())));
       
-      // Create a resolver.
-      FXMLDOMResolver fxmldomResolver = new FXMLDOMResolver(sourceFile);
+      job.existing = Files.readAllBytes(job.destFile.toPath());
+    }
+  }
+  
+  /**
+   * <p>
+   * Resolve stage. Resolve the source content into a Java descriptor, or fetch
+   * it from the shared cache directory if it has been resolved before.
+   * 
+   * @param job
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  void resolve(ConversionJob job) throws IOException, ParserConfigurationException, SAXException
+  {
+    String key = null;
+    FXMLJavaDescriptor fjd = null;
+    
+    if (sharedCache != null)
+    {
+      key = sharedCache.key(job.sourceFile, job.source);
+      fjd = sharedCache.fetch(key);
+    }
+    
+    if (fjd == null)
+    {
+      // The previous resolution to reuse, if resolving incrementally.
+      String location = Util.getLocation(job.sourceFile);
+      ResolvedTree previous = null;
+      if (resolvedTrees != null)
+      {
+        previous = resolvedTrees.get(location);
+        if (previous == null && parseCache != null)
+          previous = parseCache.fetchResolved(job.sourceFile);
+        if (previous == null)
+          previous = new ResolvedTree();
+      }
+      
+      // Resolve with the chosen parser.
+      ResolverOptions options = new ResolverOptions().setParseCache(parseCache).setPrevious(previous).setPool(resolutionPool).setStreamInstructions(streamingOutput);
+      ResolvedTree resolved;
+      if (streamingParser)
+      {
+        FXMLStAXResolver resolver = new FXMLStAXResolver(job.sourceFile, job.source, options);
+        fjd = resolver.getDescriptor();
+        resolved = resolver.getResolvedTree();
+      }
+      else
+      {
+        FXMLDOMResolver resolver = new FXMLDOMResolver(job.sourceFile, job.source, options);
+        fjd = resolver.getDescriptor();
+        resolved = resolver.getResolvedTree();
+      }
       
-      // Get the descriptor from the resolver.
-      FXMLJavaDescriptor fjd = fxmldomResolver.getDescriptor();
+      // Keep the resolution for next time.
+      if (resolved != null)
+      {
+        resolvedTrees.put(location, resolved);
+        if (parseCache != null)
+          parseCache.storeResolved(job.sourceFile, resolved);
+      }
       
+      // Share the descriptor before anything is added to it.
+      if (sharedCache != null)
+        sharedCache.store(key, fjd);
+    }
+    
+    // Output any warnings raised while resolving.
+    for (String warning : fjd.getWarningList())
+      job.out.println(warning);
+    
+    if (job.existing == null)
+    {
       // Add the required imports. These are:
       // ResourceBundle
       // FXML annotation.
       fjd.addImport("javafx.fxml.FXML");
       fjd.addImport("java.util.ResourceBundle");
-      
-      // Add required fields. Generated class requires a ResourceBundle instance. If
-      // there are no i18n strings then this can be
-      // initialised to null by the owner.
-      fjd.addField("ResourceBundle resourceBundle");
-      
+    }
+    
+    // Add required fields. Generated class requires a ResourceBundle instance. If
+    // there are no i18n strings then this can be
+    // initialised to null by the owner.
+    fjd.addField("ResourceBundle resourceBundle");
+    
+    job.descriptor = fjd;
+  }
+  
+  /**
+   * <p>
+   * Merge stage. Generate the Java content, merged with the existing destination
+   * content if there is any.
+   * 
+   * @param job
+   * @throws IOException
+   */
+  void merge(ConversionJob job) throws IOException
+  {
+    Path packageFile = new File(job.destName).toPath();
+    
+    String packge = packageFile.getParent().toString().replace('\\', '.').replace('/', '.');
+    
+    String className = packageFile.getName(packageFile.getNameCount() - 1).toString();
+    className = className.substring(0, className.indexOf('.'));
+    
+    // The content is encoded the same way as FileWriter would encode it.
+    try
+    {
+      String content = (job.existing == null) ? createContent(job.descriptor, packge, className) : updateContent(job.descriptor, job.existing, packge, className);
+      job.content = content.getBytes(Charset.defaultCharset());
+    }
+    finally
+    {
+      // The descriptor is not needed once the content is generated.
+      job.descriptor.release();
+    }
+  }
+  
+  /**
+   * <p>
+   * Write stage. Write the generated content to the destination file. An
+   * existing file is only rewritten if the content is different so that its
+   * modification time is left alone otherwise.
+   * 
+   * @param job
+   * @throws IOException
+   */
+  void write(ConversionJob job) throws IOException
+  {
+    // Get resource bundle.
+    ResourceBundle rb = ResourceBundle.getBundle("fxml2java.strings");
+    
+    if (job.existing == null)
+    {
       // Make sure the parent directory exists.
-      Files.createDirectories(destFile.toPath().getParent());
+      Files.createDirectories(job.destFile.toPath().getParent());
       
       // Create the file.
-      if (destFile.createNewFile())
+      if (!job.destFile.createNewFile())
       {
-        // Created new file - can open and populate.
-        createAndPopulate(fjd, destFile, packge, className.substring(0, className.indexOf('.')));
-      }
-      else
-      {
-        System.out.println("PANIC - CAN'T CREATE NEW FILE!!!");
+        job.out.println("PANIC - CAN'T CREATE NEW FILE!!!");
+        job.fail(new FileAlreadyExistsException(job.destFile.getPath()));
+        return;
       }
+      
+      // Created new file - can populate.
+      Files.write(job.destFile.toPath(), job.content);
+      job.status = ConversionResult.Status.CREATED;
+    }
+    else if (Arrays.equals(job.existing, job.content))
+    {
+      job.out.println(String.format(rb.getString("update.nodiff"), job.destFile.getAbsolutePath()));
+      job.status = ConversionResult.Status.SKIPPED;
     }
     else
     {
-      // Output status.
-      System.out.println(String.format(rb.getString("update"), destFile.getAbsolutePath()));
-      
-      // Compare dates for src and dest. Only update if they are different.
-      System.out.println(String.format(rb.getString("update.diff"), srcFile.getName(), new Date(srcFile.lastModified()), new Date(destFile.lastModified())));
-      
-      // Create a resolver.
-      FXMLDOMResolver fxmldomResolver = new FXMLDOMResolver(sourceFile);
-      
-      // Create java processor.
-      FXMLJavaDescriptor fjd = fxmldomResolver.getDescriptor();
-      
-      // Add required fields. Generated class requires a ResourceBundle instance. If
-      // there are no i18n strings then this can be
-      // initialised to null by the owner.
-      fjd.addField("ResourceBundle resourceBundle");
-      
-      // Update the file.
-      updateFile(fjd, destFile, packge, className.substring(0, className.indexOf('.')));
+      Files.write(job.destFile.toPath(), job.content);
+      job.status = ConversionResult.Status.UPDATED;
+    }
+    
+    // Record the conversion.
+    if (cache != null)
+      cache.record(job.sourceFile, job.destFile, job.sourceHash);
+  }
+  
+  /**
+   * <p>
+   * Get the path of the generated Java file relative to the destination
+   * directory. The source file name is the fully-qualified class name followed
+   * by the fxml extension.
+   * 
+   * @param srcFile
+   * @return
+   */
+  static String getDestinationName(Path srcFile)
+  {
+    // Calculate the dest file. Get last path entry and replace ".fxml" with ".java"
+    String srcName = srcFile.getFileName().toString();
+    // Convert source name to path.
+    char[] srcFileName = srcName.toCharArray();
+    
+    int inst = 0;
+    int extensionLoc = 0;
+    for (int i = srcFileName.length - 1; i >= 0; i--)
+    {
+      //
+      if ((srcFileName[i] == '.'))
+      {
+        if ((inst++ > 0))
+        {
+          srcFileName[i] = '/';
+        }
+        else
+        {
+          extensionLoc = i;
+        }
+      }
     }
+    
+    // Replace the 'fxml' with '.java' for the generated filename.
+    String destName = new String(srcFileName).substring(0, extensionLoc);
+    return destName + ".java";
   }
   
+  
   /**
    * <p>
    * The Java counterpart to the fxml file already exists so we are going to
@@ -241,22 +1050,23 @@ public class FXML2Java
    * userConfig() method will not be altered.
    * 
    * @param fxmlr
-   * @param destFile
+   * @param existing the existing content of the Java file.
    * @param packge
    * @param className
+   * @return the updated content.
    * @throws IOException
    */
-  private void updateFile(FXMLJavaDescriptor fxmlr, File destFile, String packge, String className) throws IOException
+  private String updateContent(FXMLJavaDescriptor fxmlr, byte[] existing, String packge, String className) throws IOException
   {
-    CompilationUnit cu = StaticJavaParser.parse(destFile);
+    CompilationUnit cu = StaticJavaParser.parse(new ByteArrayInputStream(existing));
     Optional<ClassOrInterfaceDeclaration> classA = cu.getClassByName(className);
     
     // Create indentation manager.
-    IndentManager idm = new IndentManager(2);
+    IndentManager idm = new IndentManager(INDENT_SPACES);
     
-    // REPLACE DEST FILE WITH UPDATE.
+    // BUILD THE UPDATED DEST FILE.
     // Open buffered writer.
-    FileWriter writer = new FileWriter(destFile);
+    StringWriter writer = new StringWriter();
     BufferedWriter fw = new BufferedWriter(writer);
     
     // PACKAGE NAME DECLARATION.
@@ -267,7 +1077,7 @@ public class FXML2Java
     NodeList<ImportDeclaration> imports = cu.getImports(); // Imports from existing converted file.
     for (ImportDeclaration id : imports)
       fxmlr.addImport(id.getName().asString()); // Add existing import to descriptor.
-    Set<String> importList = new HashSet<>(Arrays.asList(fxmlr.getImportList())); // All imports.
+    List<String> importList = Arrays.asList(fxmlr.getImportList()); // All imports, sorted.
     FXML2JavaOutput.outputImportList(fw, importList);
     
     // CLASS COMMENT IF EXISTS.
@@ -354,26 +1164,29 @@ public class FXML2Java
     
     // Finally - close the buffered writer.
     fw.close();
+    
+    return writer.toString();
   }
   
   /**
    * <p>
-   * The Java counterpart of the fxml file does not exist yet. It will be created
-   * here.
+   * The Java counterpart of the fxml file does not exist yet. Its content will
+   * be created here.
    * 
    * @param fxmlr
-   * @param destFile
    * @param packge
    * @param className
+   * @return the new content.
    * @throws IOException
    */
-  private void createAndPopulate(FXMLJavaDescriptor fxmlr, File destFile, String packge, String className) throws IOException
+  private String createContent(FXMLJavaDescriptor fxmlr, String packge, String className) throws IOException
   {
     // Open buffered writer.
-    BufferedWriter fw = new BufferedWriter(new FileWriter(destFile));
+    StringWriter writer = new StringWriter();
+    BufferedWriter fw = new BufferedWriter(writer);
     
     // Create indentation manager.
-    IndentManager idm = new IndentManager(2);
+    IndentManager idm = new IndentManager(INDENT_SPACES);
     
     // PACKAGE NAME DECLARATION.
     FXML2JavaOutput.outputPackageDecl(fw, packge);
@@ -429,6 +1242,8 @@ public class FXML2Java
     
     // Finally - close the buffered writer.
     fw.close();
+    
+    return writer.toString();
   }
   
 }
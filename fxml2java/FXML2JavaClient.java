@@ -0,0 +1,112 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * <p>Thin client for {@link FXML2JavaDaemon}.  Sends a single request and copies the daemon's status output to the
+ * given stream.
+ * 
+ * <pre>
+ * java fxml2java.FXML2JavaClient /tmp/fxml2java.sock convertDirectory src/org/form/basis src
+ * </pre>
+ * 
+ * @author James David Foster
+ *
+ */
+public class FXML2JavaClient
+{
+  /**
+   * <p>Send a request to the daemon listening on the given socket file.
+   * 
+   * @param socketPath the daemon's socket file.
+   * @param out stream to copy the daemon's status output to.
+   * @param request the request fields, for example "convert", sourceFile, destDir.
+   * @return true if the request succeeded.
+   * @throws IOException if the daemon can not be reached.
+   */
+  public static boolean send(String socketPath, PrintStream out, String... request) throws IOException
+  {
+    try (SocketChannel ch = SocketChannel.open(StandardProtocolFamily.UNIX))
+    {
+      ch.connect(UnixDomainSocketAddress.of(socketPath));
+
+      BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+      Writer w = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8));
+
+      w.write(String.join("\t", request) + "\n");
+      w.flush();
+
+      String line;
+      while ((line = in.readLine()) != null)
+      {
+        if (line.startsWith("OUT "))
+        {
+          out.println(line.substring(4));
+        }
+        else if ("OK".equals(line))
+        {
+          return true;
+        }
+        else
+        {
+          out.println(line);
+          return false;
+        }
+      }
+
+      // Connection closed without a result.
+      return false;
+    }
+  }
+
+  /**
+   * <p>Send the request given on the command line: socketFile followed by the request fields.  Exits with status 1 if
+   * the request fails.
+   * 
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException
+  {
+    if (args.length < 2)
+    {
+      System.out.println("Usage: FXML2JavaClient socketFile convert|convertDirectory|shutdown [source destDir]");
+      System.exit(1);
+    }
+
+    String[] request = new String[args.length - 1];
+    System.arraycopy(args, 1, request, 0, request.length);
+
+    if (!send(args[0], System.out, request))
+      System.exit(1);
+  }
+}
@@ -0,0 +1,390 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.ResourceBundle;
+import java.util.TreeSet;
+
+/**
+ * <p>Convert a large set of fxml files using several local worker JVMs, so that no single JVM's heap and garbage
+ * collector has to cope with the whole set.
+ * <p>The coordinator splits the files into shards and writes each shard as a task file in a queue directory.  Each worker
+ * repeatedly claims the next unclaimed task by renaming it, converts its files with {@link FXML2Java} and writes a result
+ * file next to it.  A worker that finishes early simply claims more tasks, so the work balances itself.  Once the workers
+ * have exited the coordinator converts any shard left without a result itself, for example if a worker crashed.
+ * <p>The status output of every file is then written in the order the files were given, followed by a summary.  Each file
+ * is converted exactly as a single-process run would convert it, so the generated files are the same.  The workers do not
+ * use a conversion cache.
+ * 
+ * <pre>
+ * java fxml2java.FXML2JavaCoordinator 4 src/org/form/basis src
+ * </pre>
+ * 
+ * @author James David Foster
+ *
+ */
+public class FXML2JavaCoordinator
+{
+  /**
+   * <p>Number of worker JVMs.
+   */
+  private final int workerCount;
+
+  /**
+   * <p>Number of files in each shard.
+   */
+  private final int shardSize;
+
+  /**
+   * <p>Create a coordinator.
+   * 
+   * @param workerCount number of worker JVMs, 1 or more.
+   * @param shardSize number of files in each task, 1 or more.  Smaller shards balance better, larger shards cost less to
+   * claim.
+   */
+  public FXML2JavaCoordinator(int workerCount, int shardSize)
+  {
+    if (workerCount < 1 || shardSize < 1)
+      throw new IllegalArgumentException("Worker count and shard size must be 1 or more.");
+
+    this.workerCount = workerCount;
+    this.shardSize = shardSize;
+  }
+
+  /**
+   * <p>Convert all .fxml files in the given source directory.  See {@link FXML2Java#convertDirectory(String, String)}.
+   * 
+   * @param sourceDirectory
+   * @param destDir
+   * @param out stream for the status output.
+   * @return a result for each file, in listing order.
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public List<ConversionResult> convertDirectory(String sourceDirectory, String destDir, PrintStream out) throws IOException, InterruptedException
+  {
+    File directory = new File(sourceDirectory);
+
+    if (!directory.isDirectory())
+      throw new IllegalArgumentException();
+
+    // List .fxml files in the source directory.
+    File[] listFiles = directory.listFiles((f) -> {
+      return f.getName().toLowerCase().endsWith(".fxml");
+    });
+
+    List<String> sources = new ArrayList<>();
+    for (File f : listFiles)
+      sources.add(f.getAbsolutePath());
+
+    return convert(sources, destDir, out);
+  }
+
+  /**
+   * <p>Convert the given .fxml files.
+   * 
+   * @param sourceFiles
+   * @param destDir
+   * @param out stream for the status output.
+   * @return a result for each file, in the order given.
+   * @throws IOException
+   * @throws InterruptedException
+   */
+  public List<ConversionResult> convert(Collection<String> sourceFiles, String destDir, PrintStream out) throws IOException, InterruptedException
+  {
+    List<String> sources = new ArrayList<>(sourceFiles);
+    Path queueDir = Files.createTempDirectory("fxml2java-queue");
+
+    try
+    {
+      // Write the tasks.
+      int shardCount = 0;
+      for (int i = 0; i < sources.size(); i += shardSize)
+      {
+        Properties task = new Properties();
+        List<String> shard = sources.subList(i, Math.min(i + shardSize, sources.size()));
+        for (int j = 0; j < shard.size(); j++)
+          task.setProperty(j + ".source", new File(shard.get(j)).getAbsolutePath());
+
+        store(task, queueDir.resolve(shardName(shardCount++) + ".task"));
+      }
+
+      // Run the workers until the queue is empty.
+      List<Process> workers = new ArrayList<>();
+      for (int i = 0; i < Math.min(workerCount, shardCount); i++)
+        workers.add(startWorker(queueDir, destDir));
+
+      for (Process p : workers)
+        p.waitFor();
+
+      // Collect the results in shard order, converting any shard that has no result here.
+      List<ConversionResult> results = new ArrayList<>();
+      FXML2Java converter = null;
+      for (int i = 0; i < shardCount; i++)
+      {
+        Path resultFile = queueDir.resolve(shardName(i) + ".result");
+        if (!Files.exists(resultFile))
+        {
+          if (converter == null)
+            converter = new FXML2Java();
+
+          Path taskFile = queueDir.resolve(shardName(i) + ".claimed");
+          if (!Files.exists(taskFile))
+            taskFile = queueDir.resolve(shardName(i) + ".task");
+
+          convertShard(converter, taskFile, resultFile, destDir);
+        }
+
+        readResults(load(resultFile), results);
+      }
+
+      // Output in the order given, then the summary.
+      for (ConversionResult r : results)
+      {
+        out.println();
+        out.println();
+        out.print(r.getReport());
+      }
+
+      Map<ConversionResult.Status, Integer> totals = new EnumMap<>(ConversionResult.Status.class);
+      for (ConversionResult.Status s : ConversionResult.Status.values())
+        totals.put(s, 0);
+      for (ConversionResult r : results)
+        totals.merge(r.getStatus(), 1, Integer::sum);
+
+      ResourceBundle rb = ResourceBundle.getBundle("fxml2java.strings");
+      out.println();
+      out.println(String.format(rb.getString("coordinator.summary"), results.size(), totals.get(ConversionResult.Status.CREATED), totals.get(ConversionResult.Status.UPDATED), totals.get(ConversionResult.Status.SKIPPED), totals.get(ConversionResult.Status.FAILED)));
+
+      return results;
+    }
+    finally
+    {
+      // Remove the queue.
+      try (DirectoryStream<Path> entries = Files.newDirectoryStream(queueDir))
+      {
+        for (Path p : entries)
+          Files.deleteIfExists(p);
+      }
+      Files.deleteIfExists(queueDir);
+    }
+  }
+
+  /**
+   * <p>Start a worker JVM on the queue.  The worker runs this class with the same class or module path as this JVM.
+   * 
+   * @param queueDir
+   * @param destDir
+   * @return
+   * @throws IOException
+   */
+  private Process startWorker(Path queueDir, String destDir) throws IOException
+  {
+    List<String> command = new ArrayList<>();
+    command.add(Paths.get(System.getProperty("java.home"), "bin", "java").toString());
+
+    Module module = FXML2JavaCoordinator.class.getModule();
+    if (module.isNamed())
+    {
+      command.add("-p");
+      command.add(System.getProperty("jdk.module.path"));
+      command.add("-m");
+      command.add(module.getName() + "/" + FXML2JavaCoordinator.class.getName());
+    }
+    else
+    {
+      command.add("-cp");
+      command.add(System.getProperty("java.class.path"));
+      command.add(FXML2JavaCoordinator.class.getName());
+    }
+
+    command.add("--worker");
+    command.add(queueDir.toString());
+    command.add(destDir);
+
+    return new ProcessBuilder(command).inheritIO().start();
+  }
+
+  /**
+   * <p>Worker loop.  Claim and convert tasks until there are none left.
+   * 
+   * @param queueDir
+   * @param destDir
+   * @throws IOException
+   */
+  static void work(Path queueDir, String destDir) throws IOException
+  {
+    FXML2Java converter = new FXML2Java();
+
+    while (true)
+    {
+      // Claim the first unclaimed task.  Another worker may claim it first, in which case try the next.
+      Path claimed = null;
+      for (String taskName : listTasks(queueDir))
+      {
+        Path task = queueDir.resolve(taskName);
+        Path claim = queueDir.resolve(taskName.replace(".task", ".claimed"));
+        try
+        {
+          Files.move(task, claim, StandardCopyOption.ATOMIC_MOVE);
+          claimed = claim;
+          break;
+        }
+        catch (NoSuchFileException | FileAlreadyExistsException e)
+        {
+          // Claimed by another worker.
+        }
+      }
+
+      if (claimed == null)
+        return;
+
+      String shard = claimed.getFileName().toString().replace(".claimed", "");
+      convertShard(converter, claimed, queueDir.resolve(shard + ".result"), destDir);
+    }
+  }
+
+  /**
+   * <p>Convert the files of a task and write the result file.  The result file only appears once it is complete.
+   * 
+   * @param converter
+   * @param taskFile
+   * @param resultFile
+   * @param destDir
+   * @throws IOException
+   */
+  private static void convertShard(FXML2Java converter, Path taskFile, Path resultFile, String destDir) throws IOException
+  {
+    Properties task = load(taskFile);
+    Properties result = new Properties();
+
+    for (int i = 0; task.getProperty(i + ".source") != null; i++)
+    {
+      ConversionResult r = converter.convertForResult(Paths.get(task.getProperty(i + ".source")), destDir);
+
+      result.setProperty(i + ".source", r.getSourcePath().toString());
+      result.setProperty(i + ".dest", r.getDestinationFile().getPath());
+      result.setProperty(i + ".status", r.getStatus().name());
+      result.setProperty(i + ".duration", Long.toString(r.getDuration().toNanos()));
+      result.setProperty(i + ".report", r.getReport());
+      if (r.getError() != null)
+        result.setProperty(i + ".error", r.getError().toString());
+    }
+
+    Path tmp = resultFile.resolveSibling(resultFile.getFileName() + "." + ProcessHandle.current().pid());
+    store(result, tmp);
+    Files.move(tmp, resultFile, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+  }
+
+  private static void readResults(Properties result, List<ConversionResult> results)
+  {
+    for (int i = 0; result.getProperty(i + ".source") != null; i++)
+    {
+      String error = result.getProperty(i + ".error");
+
+      results.add(new ConversionResult(Paths.get(result.getProperty(i + ".source")), new File(result.getProperty(i + ".dest")), ConversionResult.Status.valueOf(result.getProperty(i + ".status")), Duration.ofNanos(Long.parseLong(result.getProperty(i + ".duration"))), (error != null) ? new Exception(error) : null, result.getProperty(i + ".report")));
+    }
+  }
+
+  private static List<String> listTasks(Path queueDir) throws IOException
+  {
+    TreeSet<String> tasks = new TreeSet<>();
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(queueDir, "*.task"))
+    {
+      for (Path p : entries)
+        tasks.add(p.getFileName().toString());
+    }
+
+    return new ArrayList<>(tasks);
+  }
+
+  private static String shardName(int shard)
+  {
+    return String.format("shard-%06d", shard);
+  }
+
+  private static Properties load(Path file) throws IOException
+  {
+    Properties p = new Properties();
+    try (InputStream is = new BufferedInputStream(new FileInputStream(file.toFile())))
+    {
+      p.load(is);
+    }
+
+    return p;
+  }
+
+  private static void store(Properties p, Path file) throws IOException
+  {
+    try (OutputStream os = new BufferedOutputStream(new FileOutputStream(file.toFile())))
+    {
+      p.store(os, null);
+    }
+  }
+
+  /**
+   * <p>Either run a coordinator: workerCount sourceDirectory destDir.  Or, as started by a coordinator, run a worker:
+   * --worker queueDir destDir.  A coordinator exits with status 1 if any conversion failed.
+   * 
+   * @param args
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if (args.length == 3 && "--worker".equals(args[0]))
+    {
+      work(Paths.get(args[1]), args[2]);
+      return;
+    }
+
+    if (args.length != 3)
+    {
+      System.out.println("Usage: FXML2JavaCoordinator workerCount sourceDirectory destDir");
+      System.exit(1);
+    }
+
+    List<ConversionResult> results = new FXML2JavaCoordinator(Integer.parseInt(args[0]), 1).convertDirectory(args[1], args[2], System.out);
+
+    if (results.stream().anyMatch((r) -> r.getStatus() == ConversionResult.Status.FAILED))
+      System.exit(1);
+  }
+}
@@ -0,0 +1,230 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.StandardProtocolFamily;
+import java.net.UnixDomainSocketAddress;
+import java.nio.channels.Channels;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * <p>Long-lived conversion server.  Keeps one {@link FXML2Java} loaded and accepts conversion requests over a Unix-domain
+ * socket so that build scripts and IDE hooks do not pay JVM startup and class loading for every conversion.  Use
+ * {@link FXML2JavaClient} to send requests.
+ * <p>The protocol is line based and UTF-8 encoded.  A request is a single line of tab-separated fields:
+ * <ul>
+ * <li><code>convert&lt;TAB&gt;sourceFile&lt;TAB&gt;destDir</code>
+ * <li><code>convertDirectory&lt;TAB&gt;sourceDirectory&lt;TAB&gt;destDir</code>
+ * <li><code>shutdown</code>
+ * </ul>
+ * The response is zero or more <code>OUT&nbsp;</code> lines carrying the converter's status output, followed by either
+ * <code>OK</code> or <code>ERROR&nbsp;message</code>.  A connection may send any number of requests.
+ * 
+ * @author James David Foster
+ *
+ */
+public class FXML2JavaDaemon implements Closeable
+{
+  /**
+   * <p>The converter shared by all connections.
+   */
+  private final FXML2Java converter;
+
+  /**
+   * <p>The socket file.
+   */
+  private final Path socketPath;
+
+  /**
+   * <p>The server channel.
+   */
+  private final ServerSocketChannel server;
+
+  /**
+   * <p>Bind a daemon to the given socket file.  Any existing socket file is replaced.
+   * 
+   * @param converter
+   * @param socketPath
+   * @throws IOException
+   */
+  public FXML2JavaDaemon(FXML2Java converter, String socketPath) throws IOException
+  {
+    this.converter = converter;
+    this.socketPath = Paths.get(socketPath);
+
+    Files.deleteIfExists(this.socketPath);
+
+    server = ServerSocketChannel.open(StandardProtocolFamily.UNIX);
+    server.bind(UnixDomainSocketAddress.of(this.socketPath));
+  }
+
+  /**
+   * <p>Accept connections until the daemon is closed or a shutdown request is received.  Each connection is served on its
+   * own thread.
+   * 
+   * @throws IOException
+   */
+  public void serve() throws IOException
+  {
+    while (true)
+    {
+      SocketChannel ch;
+      try
+      {
+        ch = server.accept();
+      }
+      catch (ClosedChannelException e)
+      {
+        // Closed - stop serving.
+        return;
+      }
+
+      Thread t = new Thread(() -> handle(ch), "fxml2java-daemon-connection");
+      t.setDaemon(true);
+      t.start();
+    }
+  }
+
+  /**
+   * <p>Serve the requests on a single connection.
+   * 
+   * @param ch
+   */
+  private void handle(SocketChannel ch)
+  {
+    try (ch;
+        BufferedReader in = new BufferedReader(new InputStreamReader(Channels.newInputStream(ch), StandardCharsets.UTF_8));
+        Writer w = new BufferedWriter(new OutputStreamWriter(Channels.newOutputStream(ch), StandardCharsets.UTF_8)))
+    {
+      String request;
+      while ((request = in.readLine()) != null)
+      {
+        String[] fields = request.split("\t");
+
+        if ("shutdown".equals(fields[0]))
+        {
+          w.write("OK\n");
+          w.flush();
+          close();
+          return;
+        }
+
+        // Capture the status output of the request.
+        ByteArrayOutputStream report = new ByteArrayOutputStream();
+        PrintStream out = new PrintStream(report, true, StandardCharsets.UTF_8);
+
+        String result;
+        try
+        {
+          result = execute(fields, out);
+        }
+        catch (Exception e)
+        {
+          result = "ERROR " + e;
+        }
+
+        // Status output is sent a line at a time.  split() drops the empty string after the final line break, but
+        // splitting an empty report gives one empty line.
+        String status = report.toString(StandardCharsets.UTF_8);
+        if (!status.isEmpty())
+          for (String line : status.split("\\R"))
+            w.write("OUT " + line + "\n");
+        w.write(result.replaceAll("\\R", " ") + "\n");
+        w.flush();
+      }
+    }
+    catch (IOException e)
+    {
+      // Connection lost - nothing to report to.
+    }
+  }
+
+  /**
+   * <p>Execute a conversion request.
+   * 
+   * @param fields the request fields.
+   * @param out status output.
+   * @return the result line.
+   * @throws Exception if the conversion fails.
+   */
+  private String execute(String[] fields, PrintStream out) throws Exception
+  {
+    switch (fields[0])
+    {
+      case "convert":
+        if (fields.length != 3)
+          break;
+        converter.convert(fields[1], fields[2], out);
+        converter.saveCache();
+        return "OK";
+      case "convertDirectory":
+        if (fields.length != 3)
+          break;
+        converter.convertDirectory(fields[1], fields[2], out);
+        return "OK";
+    }
+
+    return "ERROR Unknown request " + String.join(" ", fields);
+  }
+
+  /**
+   * <p>Stop accepting connections and remove the socket file.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    server.close();
+    Files.deleteIfExists(socketPath);
+  }
+
+  /**
+   * <p>Run a daemon on the socket file given as the only argument until it receives a shutdown request.
+   * 
+   * @param args
+   * @throws IOException
+   */
+  public static void main(String[] args) throws IOException
+  {
+    if (args.length != 1)
+    {
+      System.out.println("Usage: FXML2JavaDaemon socketFile");
+      return;
+    }
+
+    try (FXML2JavaDaemon daemon = new FXML2JavaDaemon(new FXML2Java(), args[0]))
+    {
+      daemon.serve();
+    }
+  }
+}
@@ -0,0 +1,185 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.ClosedWatchServiceException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchEvent;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.util.LinkedHashSet;
+import java.util.ResourceBundle;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * <p>Watch one or more basis directories and convert each fxml file again whenever it is saved.  The converter stays
+ * loaded between conversions so each change only costs the conversion itself.
+ * <p>Editors such as SceneBuilder often write a file several times when saving.  Changes are collected until the
+ * directories have been quiet for the debounce period and then each changed file is converted once.
+ * 
+ * <pre>
+ * FXML2JavaWatcher watcher = new FXML2JavaWatcher(new FXML2Java(), destDir, 200);
+ * watcher.addDirectory(basisDir);
+ * watcher.watch();
+ * </pre>
+ * 
+ * @author James David Foster
+ *
+ */
+public class FXML2JavaWatcher implements Closeable
+{
+  /**
+   * <p>The converter used for each changed file.
+   */
+  private final FXML2Java converter;
+
+  /**
+   * <p>The destination directory for converted files.
+   */
+  private final String destDir;
+
+  /**
+   * <p>Quiet period in milliseconds before changed files are converted.
+   */
+  private final long debounceMillis;
+
+  /**
+   * <p>The watch service for the basis directories.
+   */
+  private final WatchService watchService;
+
+  /**
+   * <p>Create a watcher.
+   * 
+   * @param converter the converter to use.
+   * @param destDir the destination directory for converted files.
+   * @param debounceMillis quiet period in milliseconds before changed files are converted.
+   * @throws IOException if the watch service can not be created.
+   */
+  public FXML2JavaWatcher(FXML2Java converter, String destDir, long debounceMillis) throws IOException
+  {
+    this.converter = converter;
+    this.destDir = destDir;
+    this.debounceMillis = debounceMillis;
+    this.watchService = FileSystems.getDefault().newWatchService();
+  }
+
+  /**
+   * <p>Add a basis directory to watch.
+   * 
+   * @param basisDirectory
+   * @throws IOException
+   */
+  public void addDirectory(String basisDirectory) throws IOException
+  {
+    Path dir = new File(basisDirectory).toPath();
+
+    if (!Files.isDirectory(dir))
+      throw new IllegalArgumentException();
+
+    dir.register(watchService, StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+  }
+
+  /**
+   * <p>Watch the basis directories until the watcher is closed or the thread is interrupted.  Each changed fxml file is
+   * converted on the calling thread.  A failed conversion is reported and watching continues.
+   * 
+   * @throws InterruptedException if the thread is interrupted while waiting for changes.
+   */
+  public void watch() throws InterruptedException
+  {
+    ResourceBundle rb = ResourceBundle.getBundle("fxml2java.strings");
+
+    // Changed files waiting for the quiet period to end.  Kept in the order they were first changed.
+    Set<Path> changed = new LinkedHashSet<>();
+
+    try
+    {
+      while (true)
+      {
+        // Wait indefinitely when there is nothing to convert, otherwise wait for the rest of the quiet period.
+        WatchKey key = changed.isEmpty() ? watchService.take() : watchService.poll(debounceMillis, TimeUnit.MILLISECONDS);
+
+        if (key == null)
+        {
+          // Quiet period has ended - convert.
+          for (Path p : changed)
+          {
+            try
+            {
+              converter.convert(p.toString(), destDir);
+            }
+            catch (Exception e)
+            {
+              System.out.println(String.format(rb.getString("watch.error"), p, e));
+            }
+          }
+
+          changed.clear();
+          continue;
+        }
+
+        Path dir = (Path) key.watchable();
+        for (WatchEvent<?> evt : key.pollEvents())
+        {
+          if (evt.kind() == StandardWatchEventKinds.OVERFLOW)
+          {
+            // Events were lost - treat every fxml file in the directory as changed.
+            File[] listFiles = dir.toFile().listFiles((f) -> {
+              return f.getName().toLowerCase().endsWith(".fxml");
+            });
+            if (listFiles != null)
+            {
+              for (File f : listFiles)
+                changed.add(f.toPath());
+            }
+          }
+          else
+          {
+            Path p = dir.resolve((Path) evt.context());
+            if (p.getFileName().toString().toLowerCase().endsWith(".fxml") && Files.isRegularFile(p))
+              changed.add(p);
+          }
+        }
+
+        key.reset();
+      }
+    }
+    catch (ClosedWatchServiceException e)
+    {
+      // Closed - stop watching.
+    }
+  }
+
+  /**
+   * <p>Stop watching.  A thread blocked in {@link #watch()} returns.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    watchService.close();
+  }
+}
@@ -51,4 +51,22 @@ public class IDManager
     int ret = nextID++;
     return ret;
   }
+  
+  /**
+   * <p>Return the next ID value without using it.
+   * @return
+   */
+  public int peekNextID()
+  {
+    return nextID;
+  }
+  
+  /**
+   * <p>Use the given number of ID values without returning them, as if getNextID() had been called that many times.
+   * @param count
+   */
+  public void skipIDs(int count)
+  {
+    nextID += count;
+  }
 }
@@ -0,0 +1,292 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Properties;
+
+import fxml2java.element.FXMLJavaDescriptor;
+import fxml2java.util.Util;
+
+/**
+ * <p>Content-addressed store of resolved descriptors, kept in a directory that may be shared between machines.  An entry
+ * is keyed by a hash of the generator key, the source's location below its source root and the source content.  These
+ * are everything that affects the resolved descriptor: resources are referenced by a path worked out from the source
+ * location and the content, and the resource files themselves are not read.
+ * <p>Entries are written to a temporary file and renamed into place, so a reader never sees a partial entry.  Reading an
+ * entry updates its modification time, which eviction uses as the time it was last used.
+ * 
+ * @author James David Foster
+ *
+ */
+class SharedCache
+{
+  /**
+   * <p>The cache directory.
+   */
+  private final Path directory;
+
+  /**
+   * <p>Conversion key for the generator version and options.  Included in every key.
+   */
+  private final String generatorKey;
+
+  /**
+   * <p>Maximum total size of the entries in bytes, or 0 for no limit.
+   */
+  private final long maxBytes;
+
+  /**
+   * <p>Maximum time since an entry was last used, or null for no limit.
+   */
+  private final Duration maxAge;
+
+  /**
+   * <p>Create a cache in the given directory.
+   * 
+   * @param directory
+   * @param generatorKey
+   * @param maxBytes
+   * @param maxAge
+   * @throws IOException
+   */
+  SharedCache(Path directory, String generatorKey, long maxBytes, Duration maxAge) throws IOException
+  {
+    this.directory = directory;
+    this.generatorKey = generatorKey;
+    this.maxBytes = maxBytes;
+    this.maxAge = maxAge;
+
+    Files.createDirectories(directory);
+  }
+
+  /**
+   * <p>Calculate the key for a source file and its content.
+   * 
+   * @param sourceFile
+   * @param source the buffer's position is not changed.
+   * @return hex string key.
+   */
+  String key(Path sourceFile, ByteBuffer source)
+  {
+    // Use the location below the source root so that checkouts in different places, and copies of a source in
+    // different archives, share entries.
+    Path absolute = sourceFile.toAbsolutePath();
+    Path root = Util.findSourceRoot(absolute);
+    String location = (root != null) ? root.relativize(absolute).toString().replace('\\', '/') : Util.getLocation(absolute);
+
+    try
+    {
+      MessageDigest md = MessageDigest.getInstance("SHA-256");
+      md.update(generatorKey.getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0);
+      md.update(location.getBytes(StandardCharsets.UTF_8));
+      md.update((byte) 0);
+      md.update(source.duplicate());
+
+      StringBuilder sb = new StringBuilder();
+      for (byte b : md.digest())
+        sb.append(String.format("%02x", b));
+
+      return sb.toString();
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // SHA-256 is required on every Java platform.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  /**
+   * <p>Fetch the descriptor stored under the given key.
+   * 
+   * @param key
+   * @return the descriptor, or null if there is no usable entry.
+   */
+  FXMLJavaDescriptor fetch(String key)
+  {
+    Path entry = entryFile(key);
+
+    Properties p = new Properties();
+    try (InputStream is = new BufferedInputStream(Files.newInputStream(entry)))
+    {
+      p.load(is);
+    }
+    catch (IOException e)
+    {
+      // Missing or unreadable - treat as a miss.
+      return null;
+    }
+
+    CachedDescriptor cd;
+    try
+    {
+      cd = CachedDescriptor.fromProperties(p);
+    }
+    catch (IllegalArgumentException e)
+    {
+      // Damaged entry - treat as a miss. It is replaced when the source is resolved again.
+      return null;
+    }
+
+    // Mark the entry as used.
+    try
+    {
+      Files.setLastModifiedTime(entry, FileTime.fromMillis(System.currentTimeMillis()));
+    }
+    catch (IOException e)
+    {
+      // Evicted in the meantime - the descriptor has already been read.
+    }
+
+    return cd;
+  }
+
+  /**
+   * <p>Store a resolved descriptor under the given key.
+   * 
+   * @param key
+   * @param fjd
+   * @throws IOException
+   */
+  void store(String key, FXMLJavaDescriptor fjd) throws IOException
+  {
+    Path entry = entryFile(key);
+    Files.createDirectories(entry.getParent());
+
+    // Name the temporary file after this process so that concurrent writers do not collide.
+    Path tmp = entry.resolveSibling(key + "." + ProcessHandle.current().pid() + "." + Thread.currentThread().getId() + ".tmp");
+    try
+    {
+      try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(tmp)))
+      {
+        CachedDescriptor.copyOf(fjd).toProperties().store(os, null);
+      }
+
+      Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally
+    {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * <p>Remove entries that have not been used within the maximum age, then remove the least recently used entries until
+   * the total size is within the maximum.  Entries removed by another process at the same time are ignored.
+   * 
+   * @throws IOException
+   */
+  void evict() throws IOException
+  {
+    if (maxBytes <= 0 && maxAge == null)
+      return;
+
+    long oldest = (maxAge != null) ? System.currentTimeMillis() - maxAge.toMillis() : Long.MIN_VALUE;
+
+    List<Path> entries = new ArrayList<>();
+    List<Long> used = new ArrayList<>();
+    long total = 0;
+
+    try (DirectoryStream<Path> prefixes = Files.newDirectoryStream(directory, Files::isDirectory))
+    {
+      for (Path prefix : prefixes)
+      {
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(prefix, "*.entry"))
+        {
+          for (Path f : files)
+          {
+            try
+            {
+              long modified = Files.getLastModifiedTime(f).toMillis();
+              if (modified < oldest)
+              {
+                Files.deleteIfExists(f);
+                continue;
+              }
+
+              entries.add(f);
+              used.add(modified);
+              total += Files.size(f);
+            }
+            catch (NoSuchFileException e)
+            {
+              // Removed by another process.
+            }
+          }
+        }
+      }
+    }
+
+    if (maxBytes <= 0 || total <= maxBytes)
+      return;
+
+    // Least recently used first.
+    List<Integer> order = new ArrayList<>();
+    for (int i = 0; i < entries.size(); i++)
+      order.add(i);
+    order.sort(Comparator.comparingLong(used::get));
+
+    for (int i : order)
+    {
+      if (total <= maxBytes)
+        break;
+
+      try
+      {
+        long size = Files.size(entries.get(i));
+        Files.deleteIfExists(entries.get(i));
+        total -= size;
+      }
+      catch (NoSuchFileException e)
+      {
+        // Removed by another process.
+      }
+    }
+  }
+
+  /**
+   * <p>Entries are spread over subdirectories named after the first two characters of the key.
+   * 
+   * @param key
+   * @return
+   */
+  private Path entryFile(String key)
+  {
+    return directory.resolve(key.substring(0, 2)).resolve(key + ".entry");
+  }
+}
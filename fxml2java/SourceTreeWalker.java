@@ -0,0 +1,139 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileSystem;
+import java.nio.file.Files;
+import java.nio.file.LinkOption;
+import java.nio.file.Path;
+import java.nio.file.PathMatcher;
+
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.xml.sax.SAXException;
+
+/**
+ * <p>Walk a source tree and pass each .fxml file that passes the include and exclude globs to a receiver as soon as it is
+ * found.  Directories are read one at a time so the tree is never listed in full.
+ * 
+ * @author James David Foster
+ *
+ */
+class SourceTreeWalker
+{
+  /**
+   * <p>The root of the source tree.  Globs are matched against paths relative to this.
+   */
+  private final Path root;
+
+  /**
+   * <p>Include patterns.  If empty then every .fxml file is included.
+   */
+  private final PathMatcher[] includes;
+
+  /**
+   * <p>Exclude patterns.  These are applied to directories as well as files.
+   */
+  private final PathMatcher[] excludes;
+
+  /**
+   * <p>Create a walker for the given root and glob patterns.
+   * 
+   * @param root
+   * @param includes
+   * @param excludes
+   */
+  SourceTreeWalker(Path root, String[] includes, String[] excludes)
+  {
+    this.root = root;
+    this.includes = createMatchers(root.getFileSystem(), includes);
+    this.excludes = createMatchers(root.getFileSystem(), excludes);
+  }
+
+  /**
+   * <p>Walk the tree, passing matching source files to the receiver in the order they are found.
+   * 
+   * @param receiver
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  void walk(SourceReceiver receiver) throws IOException, ParserConfigurationException, SAXException
+  {
+    walkDirectory(root, receiver);
+  }
+
+  private void walkDirectory(Path directory, SourceReceiver receiver) throws IOException, ParserConfigurationException, SAXException
+  {
+    try (DirectoryStream<Path> entries = Files.newDirectoryStream(directory))
+    {
+      for (Path entry : entries)
+      {
+        Path relative = root.relativize(entry);
+
+        // Excluded files and directories are skipped entirely.
+        if (matchesAny(excludes, relative))
+          continue;
+
+        if (Files.isDirectory(entry, LinkOption.NOFOLLOW_LINKS))
+        {
+          walkDirectory(entry, receiver);
+        }
+        else if (entry.getFileName().toString().toLowerCase().endsWith(".fxml"))
+        {
+          if (includes.length == 0 || matchesAny(includes, relative))
+            receiver.receive(entry);
+        }
+      }
+    }
+  }
+
+  private static boolean matchesAny(PathMatcher[] matchers, Path path)
+  {
+    for (PathMatcher pm : matchers)
+    {
+      if (pm.matches(path))
+        return true;
+    }
+
+    return false;
+  }
+
+  private static PathMatcher[] createMatchers(FileSystem fs, String[] globs)
+  {
+    if (globs == null)
+      return new PathMatcher[] {};
+
+    PathMatcher[] matchers = new PathMatcher[globs.length];
+    for (int i = 0; i < globs.length; i++)
+      matchers[i] = fs.getPathMatcher("glob:" + globs[i]);
+
+    return matchers;
+  }
+
+  /**
+   * <p>Receives each source file found by the walker.
+   */
+  interface SourceReceiver
+  {
+    void receive(Path sourceFile) throws IOException, ParserConfigurationException, SAXException;
+  }
+}
@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-
-import fxml2java.util.Util;
-
 /**
  * <p>Extension of the {@link RegionElement} to add borderpane-specific property support.  
  * 
@@ -35,7 +31,7 @@ public class AnchorPaneElement extends RegionElement
    * 
    * @param element
    */
-  public AnchorPaneElement(Element element, ElementCreator elCreator)
+  public AnchorPaneElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
@@ -44,9 +40,9 @@ public class AnchorPaneElement extends RegionElement
    * <p>Special treatment for border properties.
    */
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       //Constraints.
       case "left":
@@ -68,19 +64,19 @@ public class AnchorPaneElement extends RegionElement
    * 
    * @param element
    */
-  private void handleBorderPane(Element element)
+  private void handleBorderPane(int element)
   {
     //Get the border.
-    String border = Util.capitalise(element.getNodeName());
+    String border = tree.getName(element);
     
     //Create the node and add it to the border specified.
     //Only one node can be added to a border.
-    Element borderEl = (Element) Util.getFirstXMLElement(element);
+    int borderEl = tree.getFirstChild(element);
     
     String borderChildInstance = createInstanceName(borderEl);
     createElementInstructions(borderEl);
     //Add the tab to the instance's tabs property.
-    addInstanceInstruction(instanceName + ".set" + border + "(" + borderChildInstance + ");");
+    addInstanceInstruction(Instruction.setProperty(instanceName, border, borderChildInstance));
     
   }
 }
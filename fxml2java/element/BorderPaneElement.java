@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-
-import fxml2java.util.Util;
-
 /**
  * <p>Extension of the {@link RegionElement} to add borderpane-specific property support.  
  * 
@@ -35,7 +31,7 @@ public class BorderPaneElement extends RegionElement
    * 
    * @param element
    */
-  public BorderPaneElement(Element element, ElementCreator elCreator)
+  public BorderPaneElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
@@ -44,9 +40,9 @@ public class BorderPaneElement extends RegionElement
    * <p>Special treatment for border properties.
    */
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       //Constraints.
       case "left":
@@ -68,14 +64,14 @@ public class BorderPaneElement extends RegionElement
    * 
    * @param element
    */
-  private void handleBorderPane(Element element)
+  private void handleBorderPane(int element)
   {
     //Get the border.
-    String border = Util.capitalise(element.getNodeName());
+    String border = tree.getName(element);
     
     //Create the node and add it to the border specified.
     //Only one node can be added to a border.
-    Element borderEl = (Element) Util.getFirstXMLElement(element);
+    int borderEl = tree.getFirstChild(element);
     
     //Create instance name for border child.
     //String borderChildInstance = createInstanceName(borderEl);
@@ -86,7 +82,7 @@ public class BorderPaneElement extends RegionElement
     //createElementInstructions(borderEl);
     //Add the tab to the instance's tabs property.
     //addInstanceInstruction(instanceName + ".set" + border + "(" + borderChildInstance + ");");
-    addInstanceInstruction(instanceName + ".set" + border + "(" + borderPaneSubNode.instanceName + ");");
+    addInstanceInstruction(Instruction.setProperty(instanceName, border, borderPaneSubNode.instanceName));
     
   }
 }
@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 /**
  * <p>Special support for Color.  This is immutable and arguments must be specified in the constructor.  Arguments can be specified
  * by attributes or sub-elements.
@@ -36,10 +32,10 @@ public class ColorElement extends FXMLElement
    * 
    * @param element
    */
-  public ColorElement(Element element, ElementCreator elCreator)
+  public ColorElement(int element, ElementCreator elCreator)
   {
     //Create skeleton superclass with no instructions.
-    super(elCreator, element.getNodeName());
+    super(elCreator, elCreator.getTree().getName(element));
     
     //Check the import for javafx.scene.paint.Color.
     checkImport("javafx.scene.paint.Color");
@@ -52,44 +48,35 @@ public class ColorElement extends FXMLElement
     
     //Attempt to set from attributes.
     String attrString = "";
-    if( !"".equals(attrString = element.getAttribute("red"))) red = propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("green"))) green =  propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("blue"))) blue = propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("opacity"))) opacity = propHandler.getPropertyValue("_double", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "red"))) red = propHandler.getPropertyValue("red", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "green"))) green =  propHandler.getPropertyValue("green", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "blue"))) blue = propHandler.getPropertyValue("blue", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "opacity"))) opacity = propHandler.getPropertyValue("opacity", attrString, this);
     
     //Unlikely but allow for sub-element property values.
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int el = tree.getFirstChild(element); el != FXMLTree.NONE; el = tree.getNextSibling(el))
     {
-      //Only process element nodes.
-      Node nd = childNodes.item(i);
-      if(nd.getNodeType() == Node.ELEMENT_NODE)
+      //Check element name.
+      String tagname = tree.getName(el);
+      //If element tag reflects a known constructor argument then set the argument value.
+      switch(tagname)
       {
-        //Cast to element.
-        Element el = (Element) nd;
-        
-        //Check element name.
-        String tagname = el.getTagName();
-        //If element tag reflects a known constructor argument then set the argument value.
-        switch(tagname)
-        {
-          case "red":
-            red = propHandler.getPropertyValue("_double", el.getTextContent(), this);
-            break;
-          case "green":
-            green = propHandler.getPropertyValue("_double", el.getTextContent(), this);
-            break;
-          case "blue":
-            blue = propHandler.getPropertyValue("_double", el.getTextContent(), this);
-            break;
-          case "opacity":
-            opacity = propHandler.getPropertyValue("_double", el.getTextContent(), this);
-            break;
-        }
+        case "red":
+          red = propHandler.getPropertyValue("red", tree.getTextContent(el), this);
+          break;
+        case "green":
+          green = propHandler.getPropertyValue("green", tree.getTextContent(el), this);
+          break;
+        case "blue":
+          blue = propHandler.getPropertyValue("blue", tree.getTextContent(el), this);
+          break;
+        case "opacity":
+          opacity = propHandler.getPropertyValue("opacity", tree.getTextContent(el), this);
+          break;
       }
     }
     
     //OK - finished processing constructor arguments.  Declare the constructor instruction.
-    addInstanceInstruction("Color" + instanceName + " = Color.color(" + red + ", " + green + ", " + blue + ", " + opacity);    
+    addInstanceInstruction(Instruction.construct("Color", instanceName, "Color.color", red, green, blue, opacity));
   }
 }
@@ -18,15 +18,20 @@ under the License.
  */
 package fxml2java.element;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
-
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.UnaryOperator;
 
 import fxml2java.IDManager;
+import fxml2java.StringReceiver;
 
 /**
  * <p>Create an FXML-mapped element for a given element type.
@@ -37,9 +42,46 @@ import fxml2java.IDManager;
 public class ElementCreator
 {
   /**
-   * <p>Manage id numbers for non-field instances.
+   * <p>Smallest subtree, in elements, that is resolved on another thread.
+   */
+  private static final int MIN_FORK_SIZE = 16;
+  
+  /**
+   * <p>Subtrees larger than this share of the source, in elements, are not resolved on another thread as a whole.  Their
+   * own subtrees are instead, so that the work is spread over several threads.
+   */
+  private static final int MAX_FORK_SHARE = 8;
+  
+  /**
+   * <p>Marks a placeholder in a generated instance name.  The character can not occur in an XML document.
+   */
+  private static final char MARK = '\uFFFF';
+  
+  /**
+   * <p>Manage id numbers for non-field instances.  Replaced each time an id segment starts.
+   */
+  private IDManager idm;
+  
+  /**
+   * <p>The id segment of this creator's current ids.
+   */
+  private int segment;
+  
+  /**
+   * <p>The pool that subtrees are resolved in, or null to resolve everything on this thread.
+   */
+  private final ForkJoinPool pool;
+  
+  /**
+   * <p>Ids of each segment, in the order the ids would be used by a resolution on one thread.  Segment 0 holds real ids.
+   * Every other segment numbers its ids from 1 and is renumbered once all segments are finished.
+   */
+  private final List<IDManager> segments = new ArrayList<>();
+  
+  /**
+   * <p>Subtrees being resolved on other threads, in order.
    */
-  private final IDManager idm;
+  private final List<Fork> forks = new ArrayList<>();
   
   /**
    * <p>Reference to the java descriptor for the generated file.
@@ -47,134 +89,331 @@ public class ElementCreator
   private final FXMLJavaDescriptorImpl fjd;
   
   /**
-   * <p>Elememnt creation map.  Contains one FXMLElementResponse per FXML element name.  The FXMLElementResponse
-   * instance can be used to create an FXML element of the requested type.
+   * <p>The tree of the FXML source.
+   */
+  private final FXMLTree tree;
+  
+  /**
+   * <p>The previous resolution of the source, whose unchanged subtrees are reused, or null.
+   */
+  private final ResolvedTree previous;
+  
+  /**
+   * <p>Records this resolution, or null if it is not recorded.
    */
-  private final Map<String, FXMLElementResponse> elementCreationMap = new HashMap<>();
+  private final ResolvedTree next;
+  
+  /**
+   * <p>Hash of each element's subtree when recording, otherwise null.
+   */
+  private final long[] hashes;
+  
+  /**
+   * <p>Receives the instructions of each element as soon as it is finished, or null to keep them in the elements.
+   */
+  private final StringReceiver sink;
+  
+  /**
+   * <p>Classes found for element names that have no hand-written handler.  Null if the name is not a class.
+   */
+  private final Map<String, ElementType> elementTypes = new HashMap<>();
+  
+  /**
+   * <p>The subtrees created so far by each element that is being created, innermost last.
+   */
+  private final Deque<List<ResolvedTree.Subtree>> createdSubtrees = new ArrayDeque<>();
+  
+  /**
+   * <p>The handler found for each element name, or null if the name is not handled.  Registered handlers are looked up
+   * in {@link ElementHandlers}; this only saves finding the same name again.
+   */
+  private final Map<String, ElementHandler> handlers = new HashMap<>();
   
   /**
    * <p>Constructor.
    * 
    * @param idm
    * @param fjd
+   * @param tree
    */
-  public ElementCreator(IDManager idm, FXMLJavaDescriptorImpl fjd)
+  ElementCreator(IDManager idm, FXMLJavaDescriptorImpl fjd, FXMLTree tree)
+  {
+    this(idm, fjd, tree, null, null, null, 0, null);
+  }
+  
+  /**
+   * <p>Constructor which flushes the instructions of each element to the sink as soon as the element is finished, and
+   * releases them.  The sink receives the same instructions as {@link FXMLElement#outputInstructions(StringReceiver)}
+   * of the root element would, which then outputs nothing.  An {@link IOException} thrown by the sink is rethrown as an
+   * {@link UncheckedIOException}.
+   * 
+   * @param idm
+   * @param fjd
+   * @param tree
+   * @param sink
+   */
+  ElementCreator(IDManager idm, FXMLJavaDescriptorImpl fjd, FXMLTree tree, StringReceiver sink)
+  {
+    this(idm, fjd, tree, null, null, null, 0, sink);
+  }
+  
+  /**
+   * <p>Constructor which resolves large subtrees in the given pool.  Call {@link #finish(FXMLElement)} with the root
+   * element once it has been created, before its instructions are used.
+   * 
+   * @param idm
+   * @param fjd
+   * @param tree
+   * @param pool
+   */
+  ElementCreator(IDManager idm, FXMLJavaDescriptorImpl fjd, FXMLTree tree, ForkJoinPool pool)
+  {
+    this(idm, fjd, tree, null, null, pool, 0, null);
+  }
+  
+  /**
+   * <p>Constructor which records the resolution in next, reusing subtrees of previous that have not changed.
+   * 
+   * @param idm
+   * @param fjd
+   * @param tree
+   * @param previous the previous resolution, or null.
+   * @param next an empty tree to record the resolution in, or null to not record it.
+   */
+  ElementCreator(IDManager idm, FXMLJavaDescriptorImpl fjd, FXMLTree tree, ResolvedTree previous, ResolvedTree next)
+  {
+    this(idm, fjd, tree, previous, next, null, 0, null);
+  }
+  
+  private ElementCreator(IDManager idm, FXMLJavaDescriptorImpl fjd, FXMLTree tree, ResolvedTree previous, ResolvedTree next, ForkJoinPool pool, int segment, StringReceiver sink)
   {
     this.idm = idm;
+    this.pool = pool;
+    this.segment = segment;
+    segments.add(idm);
     this.fjd = fjd;
-    
-    //Set up all FXML element responders.
-    //
-    //Standard ones.
-    FXMLElementResponse stdFXMLEle = (e) -> {return new FXMLElement(e, this);};
-    FXMLElementResponse labelledFXMLEle = (e) -> {return new LabeledElement(e, this);};
-    FXMLElementResponse regionFXMLEle = (e) -> {return new RegionElement(e, this);};
-    
-    //Mappings for element creation.
-    //Specific implementations.
-    elementCreationMap.put("GridPane", (e) -> {return new GridPaneElement(e, this);});
-    elementCreationMap.put("TableView", (e) -> {return new TableViewElement(e, this);});
-    elementCreationMap.put("TreeTableView", (e) -> {return new TreeTableViewElement(e, this);});
-    elementCreationMap.put("TabPane", (e) -> {return new TabPaneElement(e, this);});
-    elementCreationMap.put("BorderPane", (e) -> {return new BorderPaneElement(e, this);});
-    elementCreationMap.put("Tab", (e) -> {return new TabElement(e, this);});
-    //elementCreationMap.put("RadioButton", (e) -> {return new RadioButtonElement(e, this);});
-    elementCreationMap.put("Color", (e) -> {return new ColorElement(e, this);});
-    elementCreationMap.put("Insets", (e) -> {return new InsetsElement(e, this);});
-    elementCreationMap.put("Font", (e) -> {return new FontElement(e, this);});
-    elementCreationMap.put("Image", (e) -> {return new ImageElement(e, this);});
-    
-    //Standard implementations.
-    elementCreationMap.put("ComboBox", regionFXMLEle);
-    elementCreationMap.put("VBox", regionFXMLEle);
-    elementCreationMap.put("HBox", regionFXMLEle);
-    elementCreationMap.put("StackPane", regionFXMLEle);
-    elementCreationMap.put("AnchorPane", regionFXMLEle);
-    elementCreationMap.put("ScrollPane", regionFXMLEle);
-    elementCreationMap.put("ListView", regionFXMLEle);
-    elementCreationMap.put("Separator", regionFXMLEle);
-
-    elementCreationMap.put("Label", labelledFXMLEle);
-    elementCreationMap.put("RadioButton", labelledFXMLEle);
-    elementCreationMap.put("CheckBox", labelledFXMLEle);
-    elementCreationMap.put("ChoiceBox", labelledFXMLEle);
-    elementCreationMap.put("Button", labelledFXMLEle);
-
-    elementCreationMap.put("TableColumn", stdFXMLEle);
-    elementCreationMap.put("TreeTableColumn", stdFXMLEle);
-    elementCreationMap.put("TextField", stdFXMLEle);
-    elementCreationMap.put("TextArea", stdFXMLEle);
-    elementCreationMap.put("PasswordField", stdFXMLEle);
-    elementCreationMap.put("ImageView", stdFXMLEle);
-    elementCreationMap.put("Text", stdFXMLEle);
-    
-    elementCreationMap.put("ColumnConstraints", stdFXMLEle);
-    elementCreationMap.put("RowConstraints", stdFXMLEle);
-    
-    elementCreationMap.put("ToggleGroup", stdFXMLEle);
-//    elementCreationMap.put("Font", stdFXMLEle);
-//    elementCreationMap.put("Insets", stdFXMLEle);
-//    elementCreationMap.put("Image", stdFXMLEle);
-    
-    
-  }
-
-  /**
-   * <p>Create a mapped element handler for the given FXML element.
+    this.tree = tree;
+    this.previous = previous;
+    this.next = next;
+    this.sink = sink;
+    this.hashes = (next != null) ? tree.subtreeHashes(ElementHandlers.getProviderKey()) : null;
+  }
+
+  /**
+   * <p>Create a mapped element handler for the given FXML element.  When the resolution is recorded, an element whose
+   * subtree is unchanged since the previous resolution is not created again: the previous one is returned.
    * 
    * @param element
    * @return
    */
-  public FXMLElement createElement(Element element)
+  public FXMLElement createElement(int element)
+  {
+    //Resolve a large subtree on another thread.
+    if(pool != null)
+    {
+      int size = tree.getSubtreeSize(element);
+      if(size >= MIN_FORK_SIZE && size <= tree.getElementCount() / MAX_FORK_SHARE) return fork(element);
+    }
+    
+    //Streaming - every sub node has been flushed already, so this element's instructions come next.
+    if(sink != null)
+    {
+      FXMLElement created = newElement(element);
+      try
+      {
+        created.flushInstructions(sink);
+      }
+      catch(IOException e)
+      {
+        throw new UncheckedIOException(e);
+      }
+      return created;
+    }
+    
+    //Not recording.
+    if(next == null) return newElement(element);
+    
+    ResolvedTree.Key key = ResolvedTree.key(hashes, element, idm.peekNextID());
+    
+    //Same FXML at the same id as last time - add what it added then instead of creating it again.
+    ResolvedTree.Subtree subtree = (previous != null) ? previous.get(key) : null;
+    if(subtree != null)
+    {
+      subtree.replay(fjd, idm);
+      next.keep(subtree);
+      if(!createdSubtrees.isEmpty()) createdSubtrees.peekLast().add(subtree);
+      return subtree.element;
+    }
+    
+    //Create it, recording what it adds.
+    int firstID = idm.peekNextID();
+    int[] mark = ResolvedTree.Subtree.mark(fjd);
+    createdSubtrees.addLast(new ArrayList<>());
+    FXMLElement created = newElement(element);
+    List<ResolvedTree.Subtree> children = createdSubtrees.removeLast();
+    
+    subtree = ResolvedTree.Subtree.record(key, created, idm.peekNextID() - firstID, fjd, mark, children);
+    next.put(subtree);
+    if(!createdSubtrees.isEmpty()) createdSubtrees.peekLast().add(subtree);
+    
+    //The parent holds the resolved copy, so that its own copy does not have to copy this element's sub nodes.
+    return subtree.element;
+  }
+  
+  private FXMLElement newElement(int element)
   {
     //Get the element name.
-    String elName = element.getNodeName();
+    String elName = tree.getName(element);
     
     //Check for fx:root.  This needs to be handled differently.
     if("fx:root".equals(elName))
     {
       //SPECIAL CASE FOR <fx:root ...> elements.  This element will contain a type attribute which specifies the fx object type name.
-      String typeAttr = element.getAttribute("type");
+      String typeAttr = tree.getAttribute(element, "type");
       //Replace the fx:root with an element with the given type name.
       fjd.addImport(typeAttr);
       //Element name is only last segment of fully-qualified name.
       String elementName = typeAttr.substring(typeAttr.lastIndexOf('.') + 1);
-      //Create the element.
-      Element createdElement = element.getOwnerDocument().createElement(elementName);
-      //Add all attributes of the fx:root element, apart from the type attribute.
-      NamedNodeMap attributes = element.getAttributes();
-      for(int i = 0; i < attributes.getLength(); i++)
-      {
-        Node attr = attributes.item(i);
-        if(!"type".equals(attr.getNodeName())) createdElement.getAttributes().setNamedItem(attr.cloneNode(true));
-      }
+      //Handle the fx:root element as an element of the given type, with all attributes apart from the type attribute.
+      //The element is renamed in place - its children are not copied.
+      tree.retype(element, elementName, "type");
       
-      //Deep copy all sub elements of original.
-      NodeList subelements = element.getChildNodes();
-      for(int i = 0; i < subelements.getLength(); i++)
+      //Update the element name.
+      elName = tree.getName(element);
+      
+      //The type is the same as an element of the same name, unless a handler is registered under its full name.  The
+      //type may not be imported by the FXML.
+      ElementHandler rootHandler = ElementHandlers.get(typeAttr);
+      if(rootHandler == null && getHandler(elName) == null)
       {
-        Node subnode = subelements.item(i);
-        createdElement.appendChild(subnode.cloneNode(true));
+        ElementType rootType = loadElementType(typeAttr);
+        if(rootType != null && rootType.instantiable)
+        {
+          elementTypes.put(elName, rootType);
+          rootHandler = GenericElement::new;
+        }
       }
-      
-      
-      //Set the element to create from the fx:root of the parameter to the one we have created.
-      element = createdElement;
-      
-      //Update the element name.
-      elName = element.getNodeName();
+      if(rootHandler != null) handlers.put(elName, rootHandler);
     }
       
-    //Look up the element from the map.
-    FXMLElementResponse fxmlElementResponse = elementCreationMap.get(elName);
+    //Look up the element handler.
+    ElementHandler handler = getHandler(elName);
     
     //Check for not null - if null then a handler for the element doesn't exist and needs to be added!
-    if(fxmlElementResponse != null) return fxmlElementResponse.createElement(element);
+    if(handler != null) return handler.createElement(element, this);
     
     //Still here - no element handler for the requested element type.
     throw new IllegalArgumentException("No processor available for element type [" + elName + "].  Please add a processor for this type.");
   }
 
+  /**
+   * <p>Start creating an element on another thread.  Its ids and descriptor additions are kept separately until
+   * {@link #finish(FXMLElement)}, and this creator carries on in a new id segment after it.
+   * 
+   * @param element
+   * @return placeholder for the element.
+   */
+  private FXMLElement fork(int element)
+  {
+    IDManager forkIDs = new IDManager(1);
+    int forkSegment = segments.size();
+    segments.add(forkIDs);
+    
+    FXMLJavaDescriptorImpl forkDescriptor = new FXMLJavaDescriptorImpl(fjd.sourcePath);
+    ElementCreator forkCreator = new ElementCreator(forkIDs, forkDescriptor, tree, null, null, null, forkSegment, null);
+    
+    Fork f = new Fork(forkSegment, fjd.mark(), forkDescriptor, pool.submit(() -> forkCreator.createElement(element)));
+    forks.add(f);
+    
+    //Ids used from now on come after the forked subtree's.
+    idm = new IDManager(1);
+    segment = segments.size();
+    segments.add(idm);
+    
+    return new ForkedElement(tree.getName(element), MARK + "@" + forkSegment + MARK, f.task);
+  }
+  
+  /**
+   * <p>Finish a resolution that may have resolved subtrees on other threads.  Waits for them, adds what they added to the
+   * descriptor in the order they would have added it on one thread, and replaces every placeholder.
+   * 
+   * @param root the root element.
+   */
+  void finish(FXMLElement root)
+  {
+    //Nothing forked - every id is real.
+    if(forks.isEmpty()) return;
+    
+    //Wait for every forked subtree, so that every segment is finished.
+    for(Fork f : forks) f.task.join();
+    
+    //Number each segment's ids after those of the segments before it.
+    int[] base = new int[segments.size()];
+    int nextID = segments.get(0).peekNextID();
+    for(int s = 1; s < segments.size(); s++)
+    {
+      base[s] = nextID;
+      nextID += segments.get(s).peekNextID() - 1;
+    }
+    
+    //Names of the forked elements.  These only hold placeholders of their own segment.
+    Map<Integer, String> forkNames = new HashMap<>();
+    for(Fork f : forks) forkNames.put(f.segment, replacePlaceholders(f.task.join().instanceName, base, forkNames));
+    UnaryOperator<String> replace = (s) -> replacePlaceholders(s, base, forkNames);
+    
+    //Insert the last first, so that earlier marks stay valid.
+    for(int i = forks.size() - 1; i >= 0; i--) fjd.insert(forks.get(i).mark, forks.get(i).descriptor);
+    fjd.replaceAll(replace);
+    root.replaceInstructions(replace);
+  }
+  
+  /**
+   * <p>Make a generated instance name.
+   * 
+   * @param prefix
+   * @param id
+   * @return
+   */
+  String generatedName(String prefix, int id)
+  {
+    //Ids of segments after the first are renumbered later.
+    return prefix + "LINST" + ((segment == 0) ? String.format("%1$04d", id) : MARK + Integer.toString(segment) + "." + id + MARK);
+  }
+  
+  private static String replacePlaceholders(String s, int[] base, Map<Integer, String> forkNames)
+  {
+    int start = s.indexOf(MARK);
+    if(start < 0) return s;
+    
+    StringBuilder sb = new StringBuilder(s.length());
+    int from = 0;
+    while(start >= 0)
+    {
+      int end = s.indexOf(MARK, start + 1);
+      sb.append(s, from, start);
+      
+      String placeholder = s.substring(start + 1, end);
+      if(placeholder.charAt(0) == '@')
+      {
+        //Name of a forked element.
+        sb.append(forkNames.get(Integer.parseInt(placeholder.substring(1))));
+      }
+      else
+      {
+        //Segment and id in the segment.
+        int dot = placeholder.indexOf('.');
+        int id = base[Integer.parseInt(placeholder.substring(0, dot))] + Integer.parseInt(placeholder.substring(dot + 1)) - 1;
+        sb.append(String.format("%1$04d", id));
+      }
+      
+      from = end + 1;
+      start = s.indexOf(MARK, from);
+    }
+    sb.append(s, from, s.length());
+    
+    return sb.toString();
+  }
+  
   /**
    * <p>Get the next generated id count.
    * 
@@ -186,18 +425,74 @@ public class ElementCreator
   }
 
   /**
-   * <p>Access the java descriptor.
+   * <p>Access the java descriptor, for example to add an import or a field.
    * 
    * @return
    */
-  public FXMLJavaDescriptorImpl getDescriptor()
+  public FXMLJavaDescriptor getDescriptor()
   {
     return fjd;
   }
 
-  private interface FXMLElementResponse
+  /**
+   * <p>Access the java descriptor with everything the element handlers of this package use.
+   * 
+   * @return
+   */
+  FXMLJavaDescriptorImpl getDescriptorImpl()
+  {
+    return fjd;
+  }
+
+  /**
+   * <p>Access the tree of the FXML source.
+   * 
+   * @return
+   */
+  FXMLTree getTree()
+  {
+    return tree;
+  }
+
+  /**
+   * <p>Access the elements of the FXML source, for handlers that look at an element before creating it.
+   * 
+   * @return
+   */
+  public FXMLSource getSource()
   {
-    FXMLElement createElement(Element element);
+    return tree;
+  }
+
+  /**
+   * <p>A subtree being resolved on another thread.
+   */
+  private static final class Fork
+  {
+    /**
+     * <p>The subtree's id segment.
+     */
+    final int segment;
+    
+    /**
+     * <p>Where the subtree's descriptor additions go.
+     */
+    final int[] mark;
+    
+    /**
+     * <p>The subtree's descriptor additions.
+     */
+    final FXMLJavaDescriptorImpl descriptor;
+    
+    final ForkJoinTask<FXMLElement> task;
+    
+    Fork(int segment, int[] mark, FXMLJavaDescriptorImpl descriptor, ForkJoinTask<FXMLElement> task)
+    {
+      this.segment = segment;
+      this.mark = mark;
+      this.descriptor = descriptor;
+      this.task = task;
+    }
   }
   
   /**
@@ -206,8 +501,97 @@ public class ElementCreator
    * @param el
    * @return
    */
-  public boolean isJavaFXElement(Element el)
+  public boolean isJavaFXElement(int el)
+  {
+    return getHandler(tree.getName(el)) != null;
+  }
+
+  /**
+   * <p>Get the handler of an element name: the one registered under the fully-qualified name of an imported class or
+   * under the name itself, or else the introspecting {@link GenericElement} if the name is an imported class.
+   * 
+   * @param name
+   * @return the handler, or null if the name is not handled.
+   */
+  private ElementHandler getHandler(String name)
+  {
+    if(handlers.containsKey(name)) return handlers.get(name);
+    
+    //A handler registered for the imported class is more specific than one registered for any class of that name.
+    ElementHandler handler = null;
+    for(String className : importedClassNames(name))
+    {
+      if((handler = ElementHandlers.get(className)) != null) break;
+    }
+    if(handler == null) handler = ElementHandlers.get(name);
+    
+    //No registered handler - handle the class by introspection.
+    if(handler == null)
+    {
+      ElementType type = getElementType(name);
+      if(type != null && type.instantiable) handler = GenericElement::new;
+    }
+    
+    handlers.put(name, handler);
+    return handler;
+  }
+
+  /**
+   * <p>Get the introspected class of an element name, found from the imports of the FXML.
+   * 
+   * @param name simple class name.
+   * @return the type, or null if no imported class has the name.
+   */
+  ElementType getElementType(String name)
+  {
+    if(elementTypes.containsKey(name)) return elementTypes.get(name);
+    
+    ElementType type = null;
+    for(String className : importedClassNames(name))
+    {
+      if((type = loadElementType(className)) != null) break;
+    }
+    
+    elementTypes.put(name, type);
+    return type;
+  }
+
+  /**
+   * <p>Get the fully-qualified names the imports of the FXML give a simple class name, in import order.  Names that start
+   * with a lower case letter or contain a '.' are property elements and are never classes.
+   * 
+   * @param name
+   * @return
+   */
+  private List<String> importedClassNames(String name)
   {
-    return elementCreationMap.containsKey(el.getNodeName());
+    List<String> classNames = new ArrayList<>();
+    if(name.isEmpty() || !Character.isUpperCase(name.charAt(0)) || name.indexOf('.') != -1) return classNames;
+    
+    for(String importData : tree.getImportList())
+    {
+      String import_ = importData.trim();
+      if(import_.endsWith(".*")) classNames.add(import_.substring(0, import_.length() - 1) + name);
+      else if(import_.endsWith("." + name)) classNames.add(import_);
+    }
+    return classNames;
+  }
+
+  /**
+   * <p>Get the introspected type of a class, without initialising the class.
+   * 
+   * @param className fully-qualified class name.
+   * @return the type, or null if the class can not be loaded.
+   */
+  private static ElementType loadElementType(String className)
+  {
+    try
+    {
+      return ElementType.of(Class.forName(className, false, ElementCreator.class.getClassLoader()));
+    }
+    catch(ClassNotFoundException | LinkageError e)
+    {
+      return null;
+    }
   }
 }
@@ -0,0 +1,43 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+/**
+ * <p>Creates the element for an FXML element name.  Handlers are registered by an {@link ElementHandlerProvider} and
+ * are shared by every conversion, so they must not keep any state: everything about the conversion is in the element
+ * creator that is passed in.
+ * <p>A handler usually creates a subclass of {@link FXMLElement}, which reads the element's attributes and children
+ * through {@link FXMLElement#getSource()} and adds its Java statements as {@link Instruction}s.  Imports and fields go to
+ * the {@link ElementCreator#getDescriptor() descriptor}.
+ * 
+ * @author James David Foster
+ *
+ */
+@FunctionalInterface
+public interface ElementHandler
+{
+  /**
+   * <p>Create the element, and with it the elements nested inside it.
+   * 
+   * @param element the element's number in the {@link ElementCreator#getSource() FXML source}.
+   * @param elCreator
+   * @return
+   */
+  public FXMLElement createElement(int element, ElementCreator elCreator);
+}
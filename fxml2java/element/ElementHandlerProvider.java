@@ -0,0 +1,46 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.util.Map;
+
+/**
+ * <p>Supplies element handlers for the controls of a library, so that they are converted without changing fxml2java.
+ * Providers are found with {@link java.util.ServiceLoader} the first time an element is created: declare the
+ * implementation in <code>META-INF/services/fxml2java.element.ElementHandlerProvider</code>, or with
+ * <code>provides fxml2java.element.ElementHandlerProvider with ...</code> in a module.
+ * <p>A handler is registered under the element name, for example <code>Gauge</code>, or the fully-qualified class name,
+ * which is found through the imports of the FXML and the type of an fx:root element.  A provider's handler replaces a
+ * standard one of the same name, and one registered under a class name is used before one under the element name.  Two
+ * providers may not register the same name.
+ * <p>Conversions cached by fxml2java are only reused with the same providers, identified by class name and the
+ * implementation version of their package.
+ * 
+ * @author James David Foster
+ *
+ */
+public interface ElementHandlerProvider
+{
+  /**
+   * <p>Get the handlers, by element or class name.
+   * 
+   * @return
+   */
+  public Map<String, ElementHandler> getElementHandlers();
+}
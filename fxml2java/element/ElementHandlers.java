@@ -0,0 +1,179 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.ServiceConfigurationError;
+import java.util.ServiceLoader;
+
+/**
+ * <p>The element handlers of every FXML element name with hand-written support: the standard ones and those of each
+ * {@link ElementHandlerProvider} on the class or module path.  Built once, the first time it is used, and shared by every
+ * conversion and thread.  It can not be changed afterwards.
+ * <p>Two providers may not register the same name: which one was used would depend on the order they are found in.
+ * The registry is then not built, and every use throws the same error.
+ * 
+ * @author James David Foster
+ *
+ */
+public final class ElementHandlers
+{
+  /**
+   * <p>The registry, or null until it is first used.
+   */
+  private static volatile ElementHandlers registry;
+
+  /**
+   * <p>Handlers by element or class name.
+   */
+  private final Map<String, ElementHandler> handlers;
+
+  /**
+   * <p>Provider class names, with their implementation versions where known, in name order.
+   */
+  private final String providers;
+
+  private ElementHandlers(Map<String, ElementHandler> handlers, String providers)
+  {
+    this.handlers = handlers;
+    this.providers = providers;
+  }
+
+  /**
+   * <p>Get the registry, building it if this is the first use.  Not built in a static initializer, which would turn a
+   * provider conflict into an ExceptionInInitializerError and then a NoClassDefFoundError on every later use.
+   * 
+   * @return
+   * @throws ServiceConfigurationError if two providers register the same name.
+   */
+  private static ElementHandlers registry()
+  {
+    ElementHandlers r = registry;
+    if(r != null) return r;
+    
+    synchronized(ElementHandlers.class)
+    {
+      if(registry == null) registry = load();
+      return registry;
+    }
+  }
+
+  /**
+   * <p>Get the handler registered for a name.
+   * 
+   * @param name element name or fully-qualified class name.
+   * @return the handler, or null if none is registered.
+   */
+  static ElementHandler get(String name)
+  {
+    return registry().handlers.get(name);
+  }
+
+  /**
+   * <p>Get a key identifying the element handler providers in use, which change the generated code.  Empty if there are
+   * none.
+   * 
+   * @return the provider class names, with their implementation versions where known.
+   * @throws ServiceConfigurationError if two providers register the same name.
+   */
+  public static String getProviderKey()
+  {
+    return registry().providers;
+  }
+
+  private static ElementHandlers load()
+  {
+    Map<String, ElementHandler> handlers = new HashMap<>();
+    List<String> providers = new ArrayList<>();
+    addStandardHandlers(handlers);
+
+    //Handlers of other libraries, which may replace the standard ones but not each other.
+    Map<String, String> registeredBy = new HashMap<>();
+    for(ElementHandlerProvider provider : ServiceLoader.load(ElementHandlerProvider.class, ElementHandlers.class.getClassLoader()))
+    {
+      String providerName = provider.getClass().getName();
+      for(Map.Entry<String, ElementHandler> handler : provider.getElementHandlers().entrySet())
+      {
+        String other = registeredBy.putIfAbsent(handler.getKey(), providerName);
+        if(other != null) throw new ServiceConfigurationError("Element handler " + handler.getKey() + " is registered by both " + other + " and " + providerName);
+        
+        handlers.put(handler.getKey(), handler.getValue());
+      }
+      
+      String version = provider.getClass().getPackage().getImplementationVersion();
+      providers.add((version != null) ? providerName + "@" + version : providerName);
+    }
+    
+    Collections.sort(providers);
+    return new ElementHandlers(Map.copyOf(handlers), String.join(",", providers));
+  }
+
+  private static void addStandardHandlers(Map<String, ElementHandler> handlers)
+  {
+    //Standard ones.
+    ElementHandler stdFXMLEle = FXMLElement::new;
+    ElementHandler labelledFXMLEle = LabeledElement::new;
+    ElementHandler regionFXMLEle = RegionElement::new;
+    
+    //Specific implementations.
+    handlers.put("GridPane", GridPaneElement::new);
+    handlers.put("TableView", TableViewElement::new);
+    handlers.put("TreeTableView", TreeTableViewElement::new);
+    handlers.put("TabPane", TabPaneElement::new);
+    handlers.put("BorderPane", BorderPaneElement::new);
+    handlers.put("Tab", TabElement::new);
+    handlers.put("Color", ColorElement::new);
+    handlers.put("Insets", InsetsElement::new);
+    handlers.put("Font", FontElement::new);
+    handlers.put("Image", ImageElement::new);
+    
+    //Standard implementations.
+    handlers.put("ComboBox", regionFXMLEle);
+    handlers.put("VBox", regionFXMLEle);
+    handlers.put("HBox", regionFXMLEle);
+    handlers.put("StackPane", regionFXMLEle);
+    handlers.put("AnchorPane", regionFXMLEle);
+    handlers.put("ScrollPane", regionFXMLEle);
+    handlers.put("ListView", regionFXMLEle);
+    handlers.put("Separator", regionFXMLEle);
+
+    handlers.put("Label", labelledFXMLEle);
+    handlers.put("RadioButton", labelledFXMLEle);
+    handlers.put("CheckBox", labelledFXMLEle);
+    handlers.put("ChoiceBox", labelledFXMLEle);
+    handlers.put("Button", labelledFXMLEle);
+
+    handlers.put("TableColumn", stdFXMLEle);
+    handlers.put("TreeTableColumn", stdFXMLEle);
+    handlers.put("TextField", stdFXMLEle);
+    handlers.put("TextArea", stdFXMLEle);
+    handlers.put("PasswordField", stdFXMLEle);
+    handlers.put("ImageView", stdFXMLEle);
+    handlers.put("Text", stdFXMLEle);
+    
+    handlers.put("ColumnConstraints", stdFXMLEle);
+    handlers.put("RowConstraints", stdFXMLEle);
+    
+    handlers.put("ToggleGroup", stdFXMLEle);
+  }
+}
@@ -0,0 +1,155 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import javafx.beans.DefaultProperty;
+
+/**
+ * <p>What an element handler needs to know about a JavaFX class that it has no hand-written support for: whether it can
+ * be created with <code>new</code>, its default property and which of its properties are set and which are lists that
+ * values are added to.  Found by introspection.
+ * <p>Each class is only examined once, the first time it is needed.  The result is shared by every element and thread.
+ * 
+ * @author James David Foster
+ *
+ */
+final class ElementType
+{
+  /**
+   * <p>The introspected type of each class.
+   */
+  private static final ClassValue<ElementType> TYPES = new ClassValue<ElementType>()
+  {
+    @Override
+    protected ElementType computeValue(Class<?> type)
+    {
+      return new ElementType(type);
+    }
+  };
+
+  /**
+   * <p>The class.
+   */
+  final Class<?> type;
+
+  /**
+   * <p>True if the class is public and concrete, with a public constructor that takes no arguments.
+   */
+  final boolean instantiable;
+
+  /**
+   * <p>The property that elements nested directly inside the element belong to, or null if the class has none.
+   */
+  final String defaultProperty;
+
+  /**
+   * <p>Properties with a public setter.
+   */
+  private final Set<String> setterProperties = new HashSet<>();
+
+  /**
+   * <p>Properties that are lists without a setter.
+   */
+  private final Set<String> listProperties = new HashSet<>();
+
+  private ElementType(Class<?> type)
+  {
+    this.type = type;
+    this.instantiable = Modifier.isPublic(type.getModifiers()) && !Modifier.isAbstract(type.getModifiers()) && !type.isInterface() && hasDefaultConstructor(type);
+
+    //The annotation is inherited.
+    DefaultProperty dp = type.getAnnotation(DefaultProperty.class);
+    this.defaultProperty = (dp != null) ? dp.value() : null;
+
+    for(Method m : type.getMethods())
+    {
+      if(Modifier.isStatic(m.getModifiers())) continue;
+
+      String name = m.getName();
+      if(name.length() > 3 && name.startsWith("set") && m.getParameterCount() == 1)
+        setterProperties.add(decapitalise(name.substring(3)));
+    }
+
+    for(Method m : type.getMethods())
+    {
+      String name = m.getName();
+      if(Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != 0 || name.length() <= 3 || !name.startsWith("get") || !List.class.isAssignableFrom(m.getReturnType()))
+        continue;
+
+      String property = decapitalise(name.substring(3));
+      if(!setterProperties.contains(property)) listProperties.add(property);
+    }
+  }
+
+  /**
+   * <p>Get the introspected type of a class.
+   * 
+   * @param type
+   * @return
+   */
+  static ElementType of(Class<?> type)
+  {
+    return TYPES.get(type);
+  }
+
+  /**
+   * <p>True if the property is a list that values are added to.
+   * 
+   * @param property
+   * @return
+   */
+  boolean isList(String property)
+  {
+    return listProperties.contains(property);
+  }
+
+  /**
+   * <p>True if the property has a setter.
+   * 
+   * @param property
+   * @return
+   */
+  boolean hasSetter(String property)
+  {
+    return setterProperties.contains(property);
+  }
+
+  private static boolean hasDefaultConstructor(Class<?> type)
+  {
+    try
+    {
+      return Modifier.isPublic(type.getConstructor().getModifiers());
+    }
+    catch(NoSuchMethodException e)
+    {
+      return false;
+    }
+  }
+
+  private static String decapitalise(String name)
+  {
+    return name.substring(0, 1).toLowerCase() + name.substring(1);
+  }
+}
@@ -18,22 +18,20 @@ under the License.
  */
 package fxml2java.element;
 
-import java.io.BufferedInputStream;
-import java.io.FileInputStream;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+import java.util.concurrent.ForkJoinPool;
 import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
 import javax.xml.parsers.ParserConfigurationException;
 
 import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-import org.w3c.dom.ProcessingInstruction;
 import org.xml.sax.SAXException;
 
 import fxml2java.IDManager;
+import fxml2java.util.Util;
 
 /**
  * <p>Resolve the given FXML source file into a java descriptor which will be used to build the Java source code for the given FXML input.
@@ -47,13 +45,18 @@ public class FXMLDOMResolver
   /**
    * <p>The source xml file location.
    */
-  private final String sourceFile;
+  private final Path sourceFile;
     
   /**
    * <p>The java descriptor used to build a Java source file.
    */
   private final FXMLJavaDescriptorImpl jdescriptor;
   
+  /**
+   * <p>The recorded resolution, or null if it is not recorded.
+   */
+  private ResolvedTree resolvedTree;
+  
   /**
    * <p>Resolve the specified file into a java descriptor.
    * 
@@ -63,11 +66,70 @@ public class FXMLDOMResolver
    * @throws SAXException
    */
   public FXMLDOMResolver(String sourceFile) throws IOException, ParserConfigurationException, SAXException
+  {
+    this(new FXMLJavaDescriptorImpl(sourceFile));
+  }
+  
+  /**
+   * <p>Resolve the specified file, which can be in any file system - for example an entry of a jar opened as a zip file
+   * system.  The file is read in place.
+   * 
+   * @param sourceFile
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   */
+  public FXMLDOMResolver(Path sourceFile) throws IOException, ParserConfigurationException, SAXException
+  {
+    this(new FXMLJavaDescriptorImpl(sourceFile));
+  }
+  
+  private FXMLDOMResolver(FXMLJavaDescriptorImpl jdescriptor) throws IOException, ParserConfigurationException, SAXException
+  {
+    //Save the xml source file location.
+    this.sourceFile = jdescriptor.sourcePath;
+    this.jdescriptor = jdescriptor;
+    
+    doParsing(Util.newInputStream(Util.readFile(sourceFile)));
+  }
+  
+  /**
+   * <p>Resolve FXML content held in a buffer, for example one read by {@link Util#readFile(java.nio.file.Path)}.  The
+   * remaining content of the buffer is parsed without being copied and the buffer's position is not changed.  The file,
+   * which can be in any file system, is used to find resources referenced by the FXML.
+   * 
+   * @param sourceFile
+   * @param content
+   * @param options
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException
+   * @see #getResolvedTree()
+   */
+  public FXMLDOMResolver(Path sourceFile, ByteBuffer content, ResolverOptions options) throws IOException, ParserConfigurationException, SAXException
   {
     //Save the xml source file location.
     this.sourceFile = sourceFile;
     this.jdescriptor = new FXMLJavaDescriptorImpl(sourceFile);
-    doParsing();
+    
+    ParseCache parseCache = options.parseCache;
+    if(parseCache == null)
+    {
+      resolvedTree = resolveTree(parse(Util.newInputStream(content)), jdescriptor, options.previous, options.pool, options.streamInstructions);
+      return;
+    }
+    
+    String key = parseCache.key(content);
+    FXMLTree tree = parseCache.fetch(sourceFile, key);
+    if(tree == null)
+    {
+      tree = parse(Util.newInputStream(content));
+      
+      //Store before resolving - resolving fx:root changes the tree.
+      parseCache.store(sourceFile, key, tree);
+    }
+    
+    resolvedTree = resolveTree(tree, jdescriptor, options.previous, options.pool, options.streamInstructions);
   }
   
   /**
@@ -79,46 +141,97 @@ public class FXMLDOMResolver
   {
     return jdescriptor;
   }
+  
+  /**
+   * <p>Get the recorded resolution, to pass in when the same file is next resolved.
+   * 
+   * @return the resolution, or null if no previous resolution was given.
+   */
+  public ResolvedTree getResolvedTree()
+  {
+    return resolvedTree;
+  }
 
-  private void doParsing() throws ParserConfigurationException, SAXException, IOException
+  private void doParsing(InputStream resourceAsStream) throws ParserConfigurationException, SAXException, IOException
   {
     //Do the resolving.
-    InputStream resourceAsStream = new BufferedInputStream(new FileInputStream(sourceFile));
-
-    // DOM parser.
-    DocumentBuilder docBuilder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+    resolveTree(parse(resourceAsStream), jdescriptor, null, null, false);
+  }
+  
+  private static FXMLTree parse(InputStream resourceAsStream) throws ParserConfigurationException, SAXException, IOException
+  {
+    // DOM parser - this thread's pooled builder.
+    DocumentBuilder docBuilder = XMLParsers.documentBuilder();
     Document fxmlDocument = docBuilder.parse(resourceAsStream);
     
+    //Copy into the compact tree.  The document is no longer needed once it has been copied.
+    return FXMLTree.fromDocument(fxmlDocument);
+  }
+  
+  /**
+   * <p>Resolve the tree of an FXML source into the given java descriptor.  Shared with {@link FXMLStAXResolver}, which
+   * builds the tree in a different way.
+   * 
+   * @param tree
+   * @param jdescriptor
+   * @param previous the previous resolution to reuse, or null to not record the resolution.
+   * @param pool the pool to resolve large subtrees in when the resolution is not recorded, or null.
+   * @param streamInstructions true to flush element instructions to a spill as each element is finished, when the
+   *          resolution is not recorded.
+   * @return the recorded resolution, or null.
+   * @throws IOException if the instructions can not be flushed.
+   */
+  static ResolvedTree resolveTree(FXMLTree tree, FXMLJavaDescriptorImpl jdescriptor, ResolvedTree previous, ForkJoinPool pool, boolean streamInstructions) throws IOException
+  {
     //Import statements in the FXML file - include these as imports in the generated Java source code.
-    NodeList childNodes = fxmlDocument.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
-    {
-      Node item = childNodes.item(i);
-      if(item.getNodeType() == Node.PROCESSING_INSTRUCTION_NODE)
-      {
-        ProcessingInstruction pi = (ProcessingInstruction) item;
-        //Check for import.
-        if(pi.getTarget().equals("import")) jdescriptor.addImport(pi.getData());
-      }
-    }
+    for(String import_ : tree.getImportList()) jdescriptor.addImport(import_);
     
     //Get the root document element - is the form's main container.
-    Element element = fxmlDocument.getDocumentElement();
+    int element = tree.getRoot();
     
     //Determine if the root element has an fx:id.  If not then we still need a reference to it as a field because it is
     //needed to return to the owner.
     //To simplify the element structure, it is a rule that only the root element can be ID 0.  If root already has an fx:id then
     //make sure the id manager starts at 1.
     //ID manager.
-    IDManager idm = element.hasAttribute("fx:id") ? new IDManager(1) : new IDManager(0);
+    IDManager idm = tree.hasAttribute(element, "fx:id") ? new IDManager(1) : new IDManager(0);
     
     //Element creator.
-    ElementCreator ec = new ElementCreator(idm, jdescriptor);
+    //Record the resolution if there is a previous one to compare with next time.  Otherwise the instructions can be
+    //flushed as the elements are finished, or large subtrees can be resolved in parallel.
+    ResolvedTree next = (previous != null) ? new ResolvedTree() : null;
+    
+    //What each element imports is only needed to record the resolution or to merge subtrees resolved in parallel.
+    if(next == null && (streamInstructions || pool == null)) jdescriptor.recordImportRequests = false;
+    if(next == null && streamInstructions)
+    {
+      InstructionSpill spill = new InstructionSpill();
+      try
+      {
+        jdescriptor.setRootElement(new ElementCreator(idm, jdescriptor, tree, spill).createElement(element));
+      }
+      catch(UncheckedIOException e)
+      {
+        spill.close();
+        throw e.getCause();
+      }
+      catch(RuntimeException e)
+      {
+        spill.close();
+        throw e;
+      }
+      jdescriptor.setInstructionSpill(spill);
+      return null;
+    }
+    ElementCreator ec = (next == null && pool != null) ? new ElementCreator(idm, jdescriptor, tree, pool) : new ElementCreator(idm, jdescriptor, tree, previous, next);
     
     //
     FXMLElement root = ec.createElement(element);
+    ec.finish(root);
 
     //Set the root node in the descriptor.
     jdescriptor.setRootElement(root);
+    
+    return next;
   }
 }
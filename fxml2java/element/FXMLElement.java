@@ -20,18 +20,11 @@ package fxml2java.element;
 
 import java.io.IOException;
 import java.util.ArrayList;
-import java.util.Iterator;
 import java.util.List;
-
-import org.w3c.dom.Attr;
-import org.w3c.dom.Element;
-import org.w3c.dom.NamedNodeMap;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.function.UnaryOperator;
 
 import fxml2java.Handler;
 import fxml2java.StringReceiver;
-import fxml2java.util.Util;
 
 /**
  * <p>This is the base class for turning FXML into Java source code.  Upon creation, the instance will read its FXML directive and create Java statements
@@ -67,10 +60,15 @@ public class FXMLElement
    */
   private final ElementCreator elementCreator;
   
+  /**
+   * <p>The tree of the FXML source.  Elements are referred to by their number in the tree.
+   */
+  final FXMLTree tree;
+  
   /**
    * Java instructions for creating this instance.
    */
-  private final List<String> instanceInstructionList = new ArrayList<>();
+  private final List<Instruction> instanceInstructionList = new ArrayList<>();
 
   /**
    * <p>Sub nodes of this node.
@@ -78,9 +76,14 @@ public class FXMLElement
   private final List<FXMLElement> subNodeList = new ArrayList<>();
 
   /**
-   * <p>Handler for attribute name and value.
+   * <p>True once the instructions of this element and its sub nodes have been flushed to an instruction sink.
+   */
+  private boolean flushed;
+
+  /**
+   * <p>Handler for attribute name and value.  The handler keeps no state, so one is shared by all elements.
    */
-  protected final PropertyHandler propHandler = new PropertyHandler();
+  protected static final PropertyHandler propHandler = new PropertyHandler();
   
   /**
    * <p>Create instance instructions for the given element and process all of the element's sub-nodes.
@@ -88,19 +91,20 @@ public class FXMLElement
    * @param element
    * @param elCreator
    */
-  protected FXMLElement(Element element, ElementCreator elCreator)
+  protected FXMLElement(int element, ElementCreator elCreator)
   {
     //Store ref to element creator.
     this.elementCreator = elCreator;
+    this.tree = elCreator.getTree();
 
     //Instance data type is the element node name.
-    instanceDataType = element.getNodeName();
+    instanceDataType = tree.getName(element);
     
     //Create the diamond operator for the declaration.
     instanceGenericType = createGenericArgs(element);
     
     //Is field?
-    isField = !element.getAttribute("fx:id").isBlank();
+    isField = !tree.getAttribute(element, "fx:id").isBlank();
     
     //Create the element id.
     instanceName = createInstanceName(element);
@@ -110,14 +114,9 @@ public class FXMLElement
     
     //Process sub-elements.
     //
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int item = tree.getFirstChild(element); item != FXMLTree.NONE; item = tree.getNextSibling(item))
     {
-      Node item = childNodes.item(i);
-      if(item.getNodeType() == Node.ELEMENT_NODE)
-      {
-        handleElement((Element) item);
-      }
+      handleElement(item);
     }
   }
   
@@ -135,6 +134,7 @@ public class FXMLElement
   {
     //Store ref to element creator.
     this.elementCreator = elCreator;
+    this.tree = elCreator.getTree();
 
     //Instance data type is the element node name.
     this.instanceDataType = instanceDataType;
@@ -146,7 +146,26 @@ public class FXMLElement
     this.instanceGenericType = "";
     
     //Node name.
-    this.instanceName = instanceDataType.toLowerCase() + "LINST" + String.format("%1$04d", elementCreator.getNextID());
+    this.instanceName = elementCreator.generatedName(instanceDataType.toLowerCase(), elementCreator.getNextID());
+  }
+
+  /**
+   * <p>Create an element which has already been resolved, for example one reused from a previous resolution.  There is no
+   * element creator or tree: the subclass supplies the instructions.
+   * 
+   * @param instanceDataType
+   * @param instanceGenericType
+   * @param instanceName
+   * @param isField
+   */
+  FXMLElement(String instanceDataType, String instanceGenericType, String instanceName, boolean isField)
+  {
+    this.elementCreator = null;
+    this.tree = null;
+    this.instanceDataType = instanceDataType;
+    this.instanceGenericType = instanceGenericType;
+    this.instanceName = instanceName;
+    this.isField = isField;
   }
 
   /**
@@ -155,10 +174,10 @@ public class FXMLElement
    * @param element
    * @return
    */
-  protected final String createInstanceName(Element element)
+  protected final String createInstanceName(int element)
   {
-    //Attribute map.
-    NamedNodeMap attributes = element.getAttributes();
+    //Element name.
+    String elementName = tree.getName(element);
 
     String subElementID;
     
@@ -166,18 +185,16 @@ public class FXMLElement
     String genericArg = (!instanceGenericType.isBlank()) ? "<>" : "";
     
     //Look for an "fx:id".
-    Node namedItem = attributes.getNamedItem("fx:id");
-
-    if(namedItem != null)
+    if(tree.hasAttribute(element, "fx:id"))
     {
       //This instance has an fx:id.
-      subElementID = namedItem.getNodeValue();
+      subElementID = tree.getAttribute(element, "fx:id");
 
       //Add field instruction.
-      elementCreator.getDescriptor().addField(element.getNodeName() + instanceGenericType + " " + subElementID);
+      elementCreator.getDescriptor().addField(elementName + instanceGenericType + " " + subElementID);
       
       //First instruction - create the instance.
-      addInstanceInstruction(subElementID + " = new " + element.getNodeName() + genericArg + "(" + "" + ");");
+      addInstanceInstruction(Instruction.construct(null, subElementID, "new " + elementName + genericArg));
     }
     else
     {
@@ -185,13 +202,13 @@ public class FXMLElement
       int idNum = elementCreator.getNextID();
       
       //Element id.
-      subElementID = element.getNodeName().toLowerCase() + "LINST" + String.format("%1$04d", idNum);
+      subElementID = elementCreator.generatedName(elementName.toLowerCase(), idNum);
       
       //Make sure there is a field if the id number is 0.
-      if(idNum == 0) elementCreator.getDescriptor().addField(element.getNodeName() + instanceGenericType + " " + subElementID);
+      if(idNum == 0) elementCreator.getDescriptor().addField(elementName + instanceGenericType + " " + subElementID);
       
       //First instruction - create the instance.
-      addInstanceInstruction( ((idNum != 0) ? element.getNodeName() + instanceGenericType + " " : "") + subElementID + " = new " + element.getNodeName() + genericArg + "(" + "" + ");");//constructorArgs
+      addInstanceInstruction(Instruction.construct((idNum != 0) ? elementName + instanceGenericType : null, subElementID, "new " + elementName + genericArg));
     }
     
     //Return the sub-element id to the caller.
@@ -205,19 +222,13 @@ public class FXMLElement
    * @param element
    * @param instanceNameToUse
    */
-  protected final void createElementInstructions(Element element)
+  protected final void createElementInstructions(int element)
   {
-    //Attribute map.
-    NamedNodeMap attributes = element.getAttributes();
-    
     //Create attribute instructions.
-    for(int i = 0; i < attributes.getLength(); i++)
+    for(int i = 0; i < tree.getAttributeCount(element); i++)
     {
-      //Get the next attribute.
-      Attr attribute = (Attr) attributes.item(i);
-      
       //handle attrib.
-      handleAttribute(attribute.getName(), attribute.getValue());
+      handleAttribute(tree.getAttributeName(element, i), tree.getAttributeValue(element, i));
       
     }
   }
@@ -230,23 +241,19 @@ public class FXMLElement
    * @param element
    * @return
    */
-  protected final String createGenericArgs(Element element)
+  protected final String createGenericArgs(int element)
   {
-    //Attribute map.
-    NamedNodeMap attributes = element.getAttributes();
-
     //Look at generic arguments.
     //
     //This is a special case as there isn't any support for generics in SceneBuilder.  We use the id attribute and if there is a '<' character
     //then we'll treat everything afterwards as comma-separated generic arguments.
-    Node idAttr = attributes.getNamedItem("id");
     //String genericArg = "";
     String genericField = "";
     
-    if(idAttr != null)
+    if(tree.hasAttribute(element, "id"))
     {
       //Attribute value for id.
-      String idAttrValue = idAttr.getNodeValue();
+      String idAttrValue = tree.getAttribute(element, "id");
       
       //Check for '<'.
       if(idAttrValue.contains("<"))
@@ -324,12 +331,24 @@ public class FXMLElement
   }
   
   /**
-   * <p>Add a Java instruction for this instance.
+   * <p>Get the elements of the FXML source, to read this element's attributes and children.
+   * 
+   * @return
+   */
+  protected final FXMLSource getSource()
+  {
+    return tree;
+  }
+
+  /**
+   * <p>Add a Java instruction for this instance.  An earlier instruction that the new one makes redundant, such as a
+   * setter of the same property, is removed.
    * 
    * @param instruction
    */
-  protected final void addInstanceInstruction(String instruction)
+  protected final void addInstanceInstruction(Instruction instruction)
   {
+    if(instruction.isSetter()) instanceInstructionList.removeIf(instruction::supersedes);
     instanceInstructionList.add(instruction);
   }
 
@@ -350,11 +369,32 @@ public class FXMLElement
    *  
    * @param node
    */
-  protected final FXMLElement createSubNode(Element node)
+  protected final FXMLElement createSubNode(int node)
   {
     return elementCreator.createElement(node);
   }
   
+  /**
+   * <p>True if the given FXML element creates an instance, rather than setting a property of this one.
+   * 
+   * @param element
+   * @return
+   */
+  final boolean isInstanceElement(int element)
+  {
+    return elementCreator.isJavaFXElement(element);
+  }
+
+  /**
+   * <p>Get the introspected class of this element.
+   * 
+   * @return the type, or null if the class can not be found from the imports.
+   */
+  final ElementType getElementType()
+  {
+    return elementCreator.getElementType(instanceDataType);
+  }
+
   /**
    * <p>Add an instruction to to the i18n list.
    * 
@@ -362,7 +402,17 @@ public class FXMLElement
    */
   final void addI18NInstruction(String instruction)
   {
-    elementCreator.getDescriptor().setI18NTextCommandList.add(instruction);
+    elementCreator.getDescriptorImpl().setI18NTextCommandList.add(instruction);
+  }
+
+  /**
+   * <p>Add a warning to the descriptor.  Warnings are reported by the converter once the source has been resolved.
+   * 
+   * @param warning
+   */
+  final void addWarning(String warning)
+  {
+    elementCreator.getDescriptorImpl().warningList.add(warning);
   }
 
   /**
@@ -370,7 +420,7 @@ public class FXMLElement
    * 
    * @param element
    */
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {    
     //REJIG THIS!!!
     //WE REALLY NEED TO TAKE IT CASE-BY-CASE OR TRYING TO FIND A UNIFYING METHOD WILL BE CRAZY.
@@ -386,7 +436,7 @@ public class FXMLElement
     else
     {
       //Get the sub-element name.
-      String subElementName = element.getNodeName();
+      String subElementName = tree.getName(element);
       
       //Static or instance property?
       if(subElementName.contains("."))
@@ -395,15 +445,9 @@ public class FXMLElement
         //Split sub element name around the '.'
         String[] parts = subElementName.split("\\.");
         
-        //Get an iterator for all sub elements.  These must be properties that can be instanced by the element creator.
-        Iterator<Element> elIt = Util.getSubElementIterator(element);
-        
-        //Set all properties.
-        for( ; elIt.hasNext(); )
+        //Set all sub elements.  These must be properties that can be instanced by the element creator.
+        for(int nextXMLElement = tree.getFirstChild(element); nextXMLElement != FXMLTree.NONE; nextXMLElement = tree.getNextSibling(nextXMLElement))
         {
-          //Get the next element.
-          Element nextXMLElement = elIt.next();
-
           //Create the sub-node.
           FXMLElement subElement = elementCreator.createElement(nextXMLElement);
 
@@ -411,7 +455,7 @@ public class FXMLElement
           addSubNode(subElement);
           
           //Create the instruction.
-          addInstanceInstruction(parts[0] + ".set" + Util.capitalise(parts[1]) + "(" + instanceName + ", " + subElement.instanceName + ");");       
+          addInstanceInstruction(Instruction.staticSet(parts[0], parts[1], instanceName, subElement.instanceName));
         }
       }
       else
@@ -419,7 +463,7 @@ public class FXMLElement
         //Instance property.
 
         //Single, settable property.
-        Element firstXMLElement = Util.getFirstXMLElement(element);
+        int firstXMLElement = tree.getFirstChild(element);
         
         //Create it.
         FXMLElement subElement = elementCreator.createElement(firstXMLElement);
@@ -428,7 +472,7 @@ public class FXMLElement
         addSubNode(subElement);
         
         //Create the instruction.
-        addInstanceInstruction(instanceName + ".set" + Util.capitalise(subElementName) + "(" + subElement.instanceName + ");");       
+        addInstanceInstruction(Instruction.setProperty(instanceName, subElementName, subElement.instanceName));
       }
     }
   }
@@ -437,7 +481,7 @@ public class FXMLElement
    * As a result of processing child elements of this FXML element, create sub node instances and add them to the subnode list
    * in one handy operation. 
    */
-  protected FXMLElement createInternalElementNode(Element element)
+  protected FXMLElement createInternalElementNode(int element)
   {
     //Use the element creator to create the element and add as a child.
     FXMLElement createElement = elementCreator.createElement(element);
@@ -447,7 +491,7 @@ public class FXMLElement
     
     //Create an add child instruction.
     //JavaFX elements which contain other JavaFX elements are inherently Parents; <children> is optional.
-    addInstanceInstruction(this.instanceName + ".getChildren().add(" + createElement.instanceName + ");");
+    addInstanceInstruction(Instruction.add(this.instanceName, "children", createElement.instanceName));
     
     //Return the created element.
     return createElement;
@@ -471,16 +515,67 @@ public class FXMLElement
    */
   public void outputInstructions(StringReceiver receiver) throws IOException
   {    
+    //Already sent to the sink.
+    if(flushed) return;
+    
     //Sub nodes.
     for(FXMLElement fe : subNodeList) fe.outputInstructions(receiver);
 
     //
-    for(String s : instanceInstructionList) receiver.receive(s);
+    for(Instruction i : instanceInstructionList) receiver.receive(i.render());
     
     //Line break after instructions.
     receiver.receive("");
   }
   
+  /**
+   * <p>Send this element's own instructions to the sink and release them, together with its sub nodes.  The sub nodes
+   * must have been flushed already, so that the sink receives the same instructions as {@link #outputInstructions(StringReceiver)}
+   * would.  Only the instance name and type are kept.
+   * 
+   * @param sink
+   * @throws IOException
+   */
+  void flushInstructions(StringReceiver sink) throws IOException
+  {
+    for(Instruction i : instanceInstructionList) sink.receive(i.render());
+    sink.receive("");
+    
+    instanceInstructionList.clear();
+    subNodeList.clear();
+    flushed = true;
+  }
+  
+  /**
+   * <p>Make an unchanging copy of this element and its sub nodes for reuse.  Sub nodes created through an element creator
+   * that records the resolution are already resolved elements and are not copied again.
+   * 
+   * @return
+   */
+  ResolvedElement toResolvedElement()
+  {
+    ResolvedElement[] subNodes = new ResolvedElement[subNodeList.size()];
+    for(int i = 0; i < subNodes.length; i++) subNodes[i] = subNodeList.get(i).toResolvedElement();
+    
+    String[] instructions = new String[instanceInstructionList.size()];
+    for(int i = 0; i < instructions.length; i++) instructions[i] = instanceInstructionList.get(i).render();
+    
+    return new ResolvedElement(instanceDataType, instanceGenericType, instanceName, isField, subNodes, instructions);
+  }
+
+  /**
+   * <p>Apply a function to the instructions of this element and its sub nodes, in place.  Used to replace the
+   * placeholders left by a parallel resolution once every id is known.  Instance names are not changed: they have already
+   * been used in the instructions.
+   * 
+   * @param f
+   */
+  void replaceInstructions(UnaryOperator<String> f)
+  {
+    instanceInstructionList.replaceAll((i) -> i.replace(f));
+    for(FXMLElement fe : subNodeList) fe.replaceInstructions(f);
+  }
+
   /**
    * <p>Add the field command.  This will create the given field in the generated Java object.
    * 
@@ -497,7 +592,7 @@ public class FXMLElement
    */
   public void addHandlerMethod(Handler handler)
   {
-    elementCreator.getDescriptor().addHandlerInstruction(handler); 
+    elementCreator.getDescriptorImpl().addHandlerInstruction(handler); 
   }
 
 }
@@ -54,6 +54,14 @@ public interface FXMLJavaDescriptor
    */
   public void outputElementInstructions(StringReceiver receiver) throws IOException;
 
+  /**
+   * <p>Release anything held outside the heap, such as element instructions spilled to a temporary file.  The element
+   * instructions can not be output afterwards.
+   * 
+   * @throws IOException
+   */
+  public void release() throws IOException;
+
   /**
    * <p>Return the generics diamond operator for the main container, if it has generic arguments.
    * 
@@ -76,7 +84,8 @@ public interface FXMLJavaDescriptor
   public String getRootInstanceDataType();
 
   /**
-   * <p>Get a list of fully-qualified java Class names that should be imported into the generated Java class.
+   * <p>Get a list of fully-qualified java Class names that should be imported into the generated Java class.  The list
+   * is sorted.
    * 
    * @return
    */
@@ -102,4 +111,11 @@ public interface FXMLJavaDescriptor
    * @param object
    */
   public String[] getTextStringUpdateInstructionList();
+
+  /**
+   * <p>Get the list of warnings raised while resolving the FXML source, in the order they were raised.
+   * 
+   * @return
+   */
+  public String[] getWarningList();
 }
@@ -19,10 +19,13 @@ under the License.
 package fxml2java.element;
 
 import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.ArrayList;
-import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.UnaryOperator;
 
 import fxml2java.Handler;
 import fxml2java.StringReceiver;
@@ -41,6 +44,11 @@ class FXMLJavaDescriptorImpl implements FXMLJavaDescriptor
    */
   public final String sourceLocation;
   
+  /**
+   * <p>The source file, which can be in any file system.  Resources are found relative to it.
+   */
+  public final Path sourcePath;
+  
   /**
    * <p>Construct with the given source file location.
    * 
@@ -48,18 +56,42 @@ class FXMLJavaDescriptorImpl implements FXMLJavaDescriptor
    */
   public FXMLJavaDescriptorImpl(String sourceLocation)
   {
+    //Backslash separators are read as fwdslash, as Util does.
     this.sourceLocation = sourceLocation;
+    this.sourcePath = Paths.get(sourceLocation.replace('\\', '/'));
   }
+  
+  /**
+   * <p>Construct with the given source file, in any file system.
+   * 
+   * @param sourcePath
+   */
+  public FXMLJavaDescriptorImpl(Path sourcePath)
+  {
+    this.sourcePath = sourcePath;
+    this.sourceLocation = sourcePath.toString();
+  }
+
+  /**
+   * <p>List of Java import statements.  Kept sorted so that the generated imports are in the same order on every run.
+   */
+  private Set<String> importList = new TreeSet<>();
+
+  /**
+   * <p>Every import added, in order, including ones that were already present.  Used to record what each element adds.
+   */
+  final List<String> importRequestList = new ArrayList<>();
 
   /**
-   * <p>List of Java import statements.
+   * <p>False if the imports added are not needed in {@link #importRequestList}, which then stops growing with the size of
+   * the source.
    */
-  private Set<String> importList = new HashSet<>();
+  boolean recordImportRequests = true;
 
   /**
    * <p>List of class fields so that internal software can access visual components if required.
    */
-  private List<String> fieldList = new ArrayList<>();
+  final List<String> fieldList = new ArrayList<>();
 
   /**
    * <p>List of event handler callbacks required.  These will be created as stubs if they don't exist but not overwritten if they do.
@@ -71,6 +103,11 @@ class FXMLJavaDescriptorImpl implements FXMLJavaDescriptor
    */
   public List<String> setI18NTextCommandList = new ArrayList<>();
   
+  /**
+   * <p>List of warnings raised while resolving the source.
+   */
+  public List<String> warningList = new ArrayList<>();
+  
   /**
    * <p>To get round the lack of relative path support in the java resource finding services, inject a custom relative resource finder.
    * @deprecated not used any more.
@@ -82,13 +119,40 @@ class FXMLJavaDescriptorImpl implements FXMLJavaDescriptor
    */
   private FXMLElement rootElement;
   
+  /**
+   * <p>Holds the element instructions when they were flushed as the elements were finished, otherwise null.
+   */
+  private InstructionSpill instructionSpill;
+  
   /**
    * {@inheritDoc}
    */
   @Override
   public void outputElementInstructions(StringReceiver receiver) throws IOException
   {
-    rootElement.outputInstructions(receiver);
+    if(instructionSpill != null)
+      instructionSpill.replay(receiver);
+    else
+      rootElement.outputInstructions(receiver);
+  }
+
+  /**
+   * <p>Set the spill that the element instructions were flushed to.  It is closed when the descriptor is released.
+   * 
+   * @param spill
+   */
+  void setInstructionSpill(InstructionSpill spill)
+  {
+    instructionSpill = spill;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void release() throws IOException
+  {
+    if(instructionSpill != null) instructionSpill.close();
   }
 
   /**
@@ -146,6 +210,7 @@ class FXMLJavaDescriptorImpl implements FXMLJavaDescriptor
   public void addImport(String import_)
   {
     importList.add(import_);
+    if(recordImportRequests) importRequestList.add(import_);
   }
 
   /**
@@ -193,4 +258,52 @@ class FXMLJavaDescriptorImpl implements FXMLJavaDescriptor
   {
     return setI18NTextCommandList.toArray(new String[] {});
   }
+
+  /**
+   * <p>Mark the current length of the import, field, handler, i18n and warning lists.
+   * 
+   * @return
+   */
+  int[] mark()
+  {
+    return new int[] {importRequestList.size(), fieldList.size(), handlerList.size(), setI18NTextCommandList.size(), warningList.size()};
+  }
+
+  /**
+   * <p>Insert everything added to another descriptor at the given mark, as if it had been added to this one at the
+   * time the mark was made.
+   * 
+   * @param mark
+   * @param other
+   */
+  void insert(int[] mark, FXMLJavaDescriptorImpl other)
+  {
+    importList.addAll(other.importRequestList);
+    importRequestList.addAll(mark[0], other.importRequestList);
+    fieldList.addAll(mark[1], other.fieldList);
+    handlerList.addAll(mark[2], other.handlerList);
+    setI18NTextCommandList.addAll(mark[3], other.setI18NTextCommandList);
+    warningList.addAll(mark[4], other.warningList);
+  }
+
+  /**
+   * <p>Apply a function to every field, i18n instruction and warning.
+   * 
+   * @param f
+   */
+  void replaceAll(UnaryOperator<String> f)
+  {
+    fieldList.replaceAll(f);
+    setI18NTextCommandList.replaceAll(f);
+    warningList.replaceAll(f);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public String[] getWarningList()
+  {
+    return warningList.toArray(new String[] {});
+  }
 }
@@ -0,0 +1,135 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+/**
+ * <p>Read-only view of the elements of a parsed FXML source, for element handlers outside fxml2java.  Elements are
+ * numbered in document order.  Element and attribute names keep their prefixes, for example fx:id.
+ * 
+ * @author James David Foster
+ *
+ */
+public interface FXMLSource
+{
+  /**
+   * <p>No element.
+   */
+  public static final int NONE = -1;
+
+  /**
+   * <p>Get the document element.
+   * 
+   * @return
+   */
+  public int getRoot();
+
+  /**
+   * <p>Get the element name, for example VBox or fx:root.
+   * 
+   * @param el
+   * @return
+   */
+  public String getName(int el);
+
+  /**
+   * <p>Get the first child element.
+   * 
+   * @param el
+   * @return the child, or NONE.
+   */
+  public int getFirstChild(int el);
+
+  /**
+   * <p>Get the next element with the same parent.
+   * 
+   * @param el
+   * @return the sibling, or NONE.
+   */
+  public int getNextSibling(int el);
+
+  /**
+   * <p>Get the first child element with the given name.  The rest are found with {@link #getNextSameName(int)}.
+   * Descendants below the children are not searched.
+   * 
+   * @param el
+   * @param name
+   * @return the child, or NONE.
+   */
+  public int getFirstChild(int el, String name);
+
+  /**
+   * <p>Get the next element with the same parent and the same name.
+   * 
+   * @param el
+   * @return the sibling, or NONE.
+   */
+  public int getNextSameName(int el);
+
+  /**
+   * <p>Get the number of attributes.
+   * 
+   * @param el
+   * @return
+   */
+  public int getAttributeCount(int el);
+
+  /**
+   * <p>Get the name of an attribute.  Attributes are in name order.
+   * 
+   * @param el
+   * @param i
+   * @return
+   */
+  public String getAttributeName(int el, int i);
+
+  /**
+   * <p>Get the value of an attribute.
+   * 
+   * @param el
+   * @param i
+   * @return
+   */
+  public String getAttributeValue(int el, int i);
+
+  /**
+   * <p>Return true if the element has the named attribute.
+   * 
+   * @param el
+   * @param name
+   * @return
+   */
+  public boolean hasAttribute(int el, String name);
+
+  /**
+   * <p>Get the value of the named attribute.
+   * 
+   * @param el
+   * @param name
+   * @return the value, or an empty string if there is no such attribute.
+   */
+  public String getAttribute(int el, String name);
+
+  /**
+   * <p>Get the text of the element and all of its descendants.
+   * 
+   * @param el
+   * @return
+   */
+  public String getTextContent(int el);
+}
@@ -0,0 +1,180 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.file.Path;
+
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.SAXException;
+
+import fxml2java.util.Util;
+
+/**
+ * <p>Resolve FXML source into a java descriptor using a streaming (StAX) parser.  The descriptor is the same as the one
+ * {@link FXMLDOMResolver} produces.
+ * <p>The source is read in a single forward pass which builds the {@link FXMLTree} that the element handlers read
+ * directly, without building a DOM first.  Comments, nested processing instructions and the DTD are dropped.
+ * 
+ * @author James David Foster
+ *
+ */
+public class FXMLStAXResolver
+{
+  /**
+   * <p>The java descriptor used to build a Java source file.
+   */
+  private final FXMLJavaDescriptorImpl jdescriptor;
+
+  /**
+   * <p>The recorded resolution, or null if it is not recorded.
+   */
+  private final ResolvedTree resolvedTree;
+
+  /**
+   * <p>Resolve FXML content held in a buffer.  The remaining content of the buffer is parsed without being copied and the
+   * buffer's position is not changed.  The file, which can be in any file system, is used to find resources referenced
+   * by the FXML.
+   * 
+   * @param sourceFile
+   * @param content
+   * @param options
+   * @throws IOException
+   * @throws ParserConfigurationException
+   * @throws SAXException if the content is not well-formed.
+   * @see #getResolvedTree()
+   */
+  public FXMLStAXResolver(Path sourceFile, ByteBuffer content, ResolverOptions options) throws IOException, ParserConfigurationException, SAXException
+  {
+    this.jdescriptor = new FXMLJavaDescriptorImpl(sourceFile);
+
+    ParseCache parseCache = options.parseCache;
+    String key = (parseCache != null) ? parseCache.key(content) : null;
+    FXMLTree tree = (parseCache != null) ? parseCache.fetch(sourceFile, key) : null;
+
+    if (tree == null)
+    {
+      try
+      {
+        tree = readTree(Util.newInputStream(content));
+      }
+      catch (XMLStreamException e)
+      {
+        // Report malformed content the same way as the DOM parser.
+        throw new SAXException(e.getMessage(), e);
+      }
+
+      // Store before resolving - resolving fx:root changes the tree.
+      if (parseCache != null)
+        parseCache.store(sourceFile, key, tree);
+    }
+
+    this.resolvedTree = FXMLDOMResolver.resolveTree(tree, jdescriptor, options.previous, options.pool, options.streamInstructions);
+  }
+
+  /**
+   * <p>Get the java file descriptor for the given FXML source file.
+   * 
+   * @return java descriptor.
+   */
+  public FXMLJavaDescriptor getDescriptor()
+  {
+    return jdescriptor;
+  }
+
+  /**
+   * <p>Get the recorded resolution, to pass in when the same file is next resolved.
+   * 
+   * @return the resolution, or null if no previous resolution was given.
+   */
+  public ResolvedTree getResolvedTree()
+  {
+    return resolvedTree;
+  }
+
+  /**
+   * <p>Build the element tree from the stream.  Element and attribute names keep their prefixes (e.g. fx:id) as they do
+   * in the DOM parser's output.
+   * 
+   * @param is
+   * @return
+   * @throws XMLStreamException
+   */
+  private static FXMLTree readTree(InputStream is) throws XMLStreamException
+  {
+    FXMLTree tree = new FXMLTree();
+
+    XMLStreamReader reader = XMLParsers.streamReader(is);
+    try
+    {
+      // Element nesting depth.  Zero outside the root element.
+      int depth = 0;
+
+      while (reader.hasNext())
+      {
+        switch (reader.next())
+        {
+          case XMLStreamConstants.START_ELEMENT:
+            tree.startElement(qualifiedName(reader.getPrefix(), reader.getLocalName()));
+
+            for (int i = 0; i < reader.getAttributeCount(); i++)
+              tree.attribute(qualifiedName(reader.getAttributePrefix(i), reader.getAttributeLocalName(i)), reader.getAttributeValue(i));
+
+            depth++;
+            break;
+
+          case XMLStreamConstants.END_ELEMENT:
+            tree.endElement();
+            depth--;
+            break;
+
+          case XMLStreamConstants.CHARACTERS:
+          case XMLStreamConstants.CDATA:
+          case XMLStreamConstants.SPACE:
+            // Text outside the root element is ignored by the tree.
+            tree.text(reader.getText());
+            break;
+
+          case XMLStreamConstants.PROCESSING_INSTRUCTION:
+            // Only top-level import instructions are read by the resolver.
+            if (depth == 0 && "import".equals(reader.getPITarget()))
+              tree.importInstruction(reader.getPIData());
+            break;
+        }
+      }
+    }
+    finally
+    {
+      reader.close();
+    }
+
+    return tree;
+  }
+
+  private static String qualifiedName(String prefix, String localName)
+  {
+    return (prefix == null || prefix.isEmpty()) ? localName : prefix + ":" + localName;
+  }
+}
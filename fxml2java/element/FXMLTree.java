@@ -0,0 +1,816 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import org.w3c.dom.Attr;
+import org.w3c.dom.Document;
+import org.w3c.dom.NamedNodeMap;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.w3c.dom.ProcessingInstruction;
+
+/**
+ * <p>Compact element tree of a parsed FXML source, which the element handlers read in place of a DOM.  Only what the
+ * handlers use is kept: elements, their attributes, their text and the import instructions.
+ * <p>Elements are numbered in document order and are held in parallel arrays indexed by that number.  Element names,
+ * attribute names and text are interned in a symbol table and stored as symbol numbers.  The attributes of an element
+ * are a run in the flat attribute arrays, sorted by name as the DOM returns them.
+ * <p>Handlers only look at the direct children of an element.  Children are linked in order and each child is also
+ * linked to the next child with the same name, so all the children with a given name are visited without looking at
+ * the others or at any descendants.
+ * <p>A tree is built with {@link #startElement(String)}, {@link #attribute(String, String)}, {@link #text(String)} and
+ * {@link #endElement()} in document order.  A tree is only used by the thread that resolves its source.
+ * <p>A tree can be written in a compact binary form and read back with {@link #write(DataOutput)} and
+ * {@link #read(DataInput)}, which is how {@link ParseCache} stores it.
+ * 
+ * @author James David Foster
+ *
+ */
+final class FXMLTree implements FXMLSource
+{
+  /**
+   * <p>Symbol table - interned names and text.
+   */
+  private final Map<String, Integer> symbolIndex = new HashMap<>();
+
+  private String[] symbols = new String[64];
+
+  private int symbolCount;
+
+  /**
+   * <p>Per element: name symbol, parent, first and last child element, next sibling element, next sibling element with
+   * the same name, first attribute, attribute count and text symbol.
+   */
+  private int[] elementName = new int[64];
+
+  private int[] parent = new int[64];
+
+  private int[] firstChild = new int[64];
+
+  private int[] lastChild = new int[64];
+
+  private int[] nextSibling = new int[64];
+
+  private int[] nextSameName = new int[64];
+
+  private int[] attributeStart = new int[64];
+
+  private int[] attributeCount = new int[64];
+
+  private int[] text = new int[64];
+
+  private int elementCount;
+
+  /**
+   * <p>Per attribute: name symbol and value.
+   */
+  private int[] attributeName = new int[64];
+
+  private String[] attributeValue = new String[64];
+
+  private int attributeTotal;
+
+  /**
+   * <p>Last child seen with each name symbol while linking children.  NONE between uses.
+   */
+  private int[] lastWithName = new int[0];
+
+  /**
+   * <p>The data of each top-level import instruction, in document order.
+   */
+  private final List<String> importList = new ArrayList<>();
+
+  /**
+   * <p>The document element.
+   */
+  private int root = NONE;
+
+  /**
+   * <p>The element being built, or NONE outside the document element.
+   */
+  private int current = NONE;
+
+  /**
+   * <p>Text received so far for each element being built, outermost first, or null if it has none yet.  The text is only
+   * interned when its element ends, so that an element with many children does not intern every partial text.
+   */
+  private final List<StringBuilder> openText = new ArrayList<>();
+
+  /**
+   * <p>Build a tree from a parsed document.  The document is not referenced by the tree.
+   * 
+   * @param document
+   * @return
+   */
+  static FXMLTree fromDocument(Document document)
+  {
+    FXMLTree tree = new FXMLTree();
+
+    NodeList childNodes = document.getChildNodes();
+    for(int i = 0; i < childNodes.getLength(); i++)
+    {
+      Node item = childNodes.item(i);
+      if(item.getNodeType() == Node.PROCESSING_INSTRUCTION_NODE)
+      {
+        ProcessingInstruction pi = (ProcessingInstruction) item;
+        if(pi.getTarget().equals("import")) tree.importInstruction(pi.getData());
+      }
+      else if(item.getNodeType() == Node.ELEMENT_NODE)
+      {
+        tree.copyNode(item);
+      }
+    }
+
+    return tree;
+  }
+
+  private void copyNode(Node node)
+  {
+    startElement(node.getNodeName());
+
+    NamedNodeMap attributes = node.getAttributes();
+    for(int i = 0; i < attributes.getLength(); i++)
+    {
+      Attr attribute = (Attr) attributes.item(i);
+      attribute(attribute.getName(), attribute.getValue());
+    }
+
+    for(Node child = node.getFirstChild(); child != null; child = child.getNextSibling())
+    {
+      switch(child.getNodeType())
+      {
+        case Node.ELEMENT_NODE:
+          copyNode(child);
+          break;
+        case Node.TEXT_NODE:
+        case Node.CDATA_SECTION_NODE:
+          text(child.getNodeValue());
+          break;
+      }
+    }
+
+    endElement();
+  }
+
+  /**
+   * <p>Read a tree written by {@link #write(DataOutput)}.
+   *
+   * @param in
+   * @return
+   * @throws IOException if the input ends early or does not describe a tree.
+   */
+  static FXMLTree read(DataInput in) throws IOException
+  {
+    FXMLTree tree = new FXMLTree();
+
+    tree.symbolCount = readCount(in);
+    tree.symbols = new String[Math.max(tree.symbolCount, 1)];
+    for(int i = 0; i < tree.symbolCount; i++)
+    {
+      tree.symbols[i] = readString(in);
+      tree.symbolIndex.put(tree.symbols[i], i);
+    }
+
+    int n = tree.elementCount = readCount(in);
+    tree.elementName = readInts(in, n);
+    tree.parent = readInts(in, n);
+    tree.firstChild = readInts(in, n);
+    tree.lastChild = readInts(in, n);
+    tree.nextSibling = readInts(in, n);
+    tree.nextSameName = readInts(in, n);
+    tree.attributeStart = readInts(in, n);
+    tree.attributeCount = readInts(in, n);
+    tree.text = readInts(in, n);
+
+    tree.attributeTotal = readCount(in);
+    tree.attributeName = readInts(in, tree.attributeTotal);
+    tree.attributeValue = new String[Math.max(tree.attributeTotal, 1)];
+    for(int i = 0; i < tree.attributeTotal; i++) tree.attributeValue[i] = readString(in);
+
+    int imports = readCount(in);
+    for(int i = 0; i < imports; i++) tree.importList.add(readString(in));
+
+    tree.root = in.readInt();
+
+    tree.check();
+    return tree;
+  }
+
+  /**
+   * <p>Write the tree in binary form.  Only a finished tree should be written.
+   *
+   * @param out
+   * @throws IOException
+   */
+  void write(DataOutput out) throws IOException
+  {
+    out.writeInt(symbolCount);
+    for(int i = 0; i < symbolCount; i++) writeString(out, symbols[i]);
+
+    int n = elementCount;
+    out.writeInt(n);
+    writeInts(out, elementName, n);
+    writeInts(out, parent, n);
+    writeInts(out, firstChild, n);
+    writeInts(out, lastChild, n);
+    writeInts(out, nextSibling, n);
+    writeInts(out, nextSameName, n);
+    writeInts(out, attributeStart, n);
+    writeInts(out, attributeCount, n);
+    writeInts(out, text, n);
+
+    out.writeInt(attributeTotal);
+    writeInts(out, attributeName, attributeTotal);
+    for(int i = 0; i < attributeTotal; i++) writeString(out, attributeValue[i]);
+
+    out.writeInt(importList.size());
+    for(String s : importList) writeString(out, s);
+
+    out.writeInt(root);
+  }
+
+  /**
+   * <p>Check that every element, symbol and attribute reference read back is in range, so that a damaged tree is
+   * rejected when it is read rather than failing in a handler.
+   *
+   * @throws IOException
+   */
+  private void check() throws IOException
+  {
+    if(elementCount == 0 || !isElement(root)) throw new IOException("Damaged tree: no document element.");
+
+    for(int el = 0; el < elementCount; el++)
+    {
+      if(!isSymbol(elementName[el]) || !isElement(parent[el]) || !isElement(firstChild[el]) || !isElement(lastChild[el]) || !isElement(nextSibling[el]) || !isElement(nextSameName[el]) || !(text[el] == NONE || isSymbol(text[el]))
+          || attributeStart[el] < 0 || attributeCount[el] < 0 || attributeStart[el] + attributeCount[el] > attributeTotal)
+        throw new IOException("Damaged tree: element " + el + ".");
+    }
+
+    for(int i = 0; i < attributeTotal; i++)
+    {
+      if(!isSymbol(attributeName[i])) throw new IOException("Damaged tree: attribute " + i + ".");
+    }
+  }
+
+  private boolean isElement(int el)
+  {
+    return el >= NONE && el < elementCount;
+  }
+
+  private boolean isSymbol(int symbol)
+  {
+    return symbol >= 0 && symbol < symbolCount;
+  }
+
+  static int readCount(DataInput in) throws IOException
+  {
+    int n = in.readInt();
+    if(n < 0) throw new IOException("Damaged tree: negative count.");
+    return n;
+  }
+
+  private static int[] readInts(DataInput in, int n) throws IOException
+  {
+    int[] values = new int[Math.max(n, 1)];
+    for(int i = 0; i < n; i++) values[i] = in.readInt();
+    return values;
+  }
+
+  private static void writeInts(DataOutput out, int[] values, int n) throws IOException
+  {
+    for(int i = 0; i < n; i++) out.writeInt(values[i]);
+  }
+
+  static String readString(DataInput in) throws IOException
+  {
+    byte[] bytes = new byte[readCount(in)];
+    in.readFully(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+
+  static void writeString(DataOutput out, String s) throws IOException
+  {
+    //Length-prefixed UTF-8.  DataOutput.writeUTF is limited to 64K bytes, which long text can exceed.
+    byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  /**
+   * <p>Add a top-level import instruction.
+   * 
+   * @param data the imported class or package.
+   */
+  void importInstruction(String data)
+  {
+    importList.add(data);
+  }
+
+  /**
+   * <p>Start an element inside the current element, or the document element if there is no current element.  The new
+   * element becomes the current element.
+   * 
+   * @param name
+   * @return the new element.
+   */
+  int startElement(String name)
+  {
+    int el = newElement(name);
+
+    parent[el] = current;
+    if(current == NONE)
+    {
+      if(root == NONE) root = el;
+    }
+    else
+    {
+      if(firstChild[current] == NONE) firstChild[current] = el;
+      else nextSibling[lastChild[current]] = el;
+      lastChild[current] = el;
+    }
+
+    current = el;
+    openText.add(null);
+    return el;
+  }
+
+  /**
+   * <p>Add an attribute to the current element.  Attributes must be added before the element's children.
+   * 
+   * @param name
+   * @param value
+   */
+  void attribute(String name, String value)
+  {
+    if(attributeTotal == attributeName.length)
+    {
+      attributeName = Arrays.copyOf(attributeName, attributeTotal * 2);
+      attributeValue = Arrays.copyOf(attributeValue, attributeTotal * 2);
+    }
+
+    //Insert in name order.  Elements have few attributes.
+    int nameSymbol = symbol(name);
+    int start = attributeStart[current];
+    int i = attributeTotal;
+    while(i > start && symbols[attributeName[i - 1]].compareTo(name) > 0)
+    {
+      attributeName[i] = attributeName[i - 1];
+      attributeValue[i] = attributeValue[i - 1];
+      i--;
+    }
+    attributeName[i] = nameSymbol;
+    attributeValue[i] = value;
+
+    attributeTotal++;
+    attributeCount[current]++;
+  }
+
+  /**
+   * <p>Add text to the current element.  Text outside the document element is ignored.
+   * 
+   * @param content
+   */
+  void text(String content)
+  {
+    if(current == NONE) return;
+
+    int last = openText.size() - 1;
+    if(openText.get(last) == null) openText.set(last, new StringBuilder(content));
+    else openText.get(last).append(content);
+  }
+
+  /**
+   * <p>End the current element.  Its parent becomes the current element.
+   */
+  void endElement()
+  {
+    StringBuilder content = openText.remove(openText.size() - 1);
+    if(content != null) text[current] = symbol(content.toString());
+
+    linkSameName(current);
+    current = parent[current];
+  }
+
+  /**
+   * <p>Get the data of each top-level import instruction, in document order.
+   * 
+   * @return
+   */
+  List<String> getImportList()
+  {
+    return importList;
+  }
+
+  /**
+   * <p>Get the number of elements.
+   * 
+   * @return
+   */
+  int getElementCount()
+  {
+    return elementCount;
+  }
+
+  /**
+   * <p>Get the number of elements in an element's subtree, including the element.
+   * 
+   * @param el
+   * @return
+   */
+  int getSubtreeSize(int el)
+  {
+    //Elements are numbered in document order, so the subtree ends where the next element outside it starts.
+    for(int e = el; e != NONE; e = parent[e])
+    {
+      if(nextSibling[e] != NONE) return nextSibling[e] - el;
+    }
+
+    return elementCount - el;
+  }
+
+  /**
+   * <p>Get the document element.
+   * 
+   * @return
+   */
+  @Override
+  public int getRoot()
+  {
+    return root;
+  }
+
+  /**
+   * <p>Get the element name, for example VBox or fx:root.
+   * 
+   * @param el
+   * @return
+   */
+  @Override
+  public String getName(int el)
+  {
+    return symbols[elementName[el]];
+  }
+
+  /**
+   * <p>Get the first child element.
+   * 
+   * @param el
+   * @return the child, or NONE.
+   */
+  @Override
+  public int getFirstChild(int el)
+  {
+    return firstChild[el];
+  }
+
+  /**
+   * <p>Get the next element with the same parent.
+   * 
+   * @param el
+   * @return the sibling, or NONE.
+   */
+  @Override
+  public int getNextSibling(int el)
+  {
+    return nextSibling[el];
+  }
+
+  /**
+   * <p>Get the number of attributes.
+   * 
+   * @param el
+   * @return
+   */
+  @Override
+  public int getAttributeCount(int el)
+  {
+    return attributeCount[el];
+  }
+
+  /**
+   * <p>Get the name of an attribute.  Attributes are in name order.
+   * 
+   * @param el
+   * @param i
+   * @return
+   */
+  @Override
+  public String getAttributeName(int el, int i)
+  {
+    return symbols[attributeName[attributeStart[el] + i]];
+  }
+
+  /**
+   * <p>Get the value of an attribute.
+   * 
+   * @param el
+   * @param i
+   * @return
+   */
+  @Override
+  public String getAttributeValue(int el, int i)
+  {
+    return attributeValue[attributeStart[el] + i];
+  }
+
+  /**
+   * <p>Return true if the element has the named attribute.
+   * 
+   * @param el
+   * @param name
+   * @return
+   */
+  @Override
+  public boolean hasAttribute(int el, String name)
+  {
+    return findAttribute(el, name) != NONE;
+  }
+
+  /**
+   * <p>Get the value of the named attribute.
+   * 
+   * @param el
+   * @param name
+   * @return the value, or an empty string if there is no such attribute.
+   */
+  @Override
+  public String getAttribute(int el, String name)
+  {
+    int i = findAttribute(el, name);
+    return (i != NONE) ? attributeValue[i] : "";
+  }
+
+  /**
+   * <p>Get the text of the element and all of its descendants.
+   * 
+   * @param el
+   * @return
+   */
+  @Override
+  public String getTextContent(int el)
+  {
+    if(firstChild[el] == NONE) return (text[el] != NONE) ? symbols[text[el]] : "";
+
+    StringBuilder sb = new StringBuilder();
+    appendText(el, sb);
+    return sb.toString();
+  }
+
+  private void appendText(int el, StringBuilder sb)
+  {
+    if(text[el] != NONE) sb.append(symbols[text[el]]);
+    for(int child = firstChild[el]; child != NONE; child = nextSibling[child]) appendText(child, sb);
+  }
+
+  /**
+   * <p>Get the first child element with the given name.  The rest are found with {@link #getNextSameName(int)}.
+   * Descendants below the children are not searched.
+   * 
+   * @param el
+   * @param name
+   * @return the child, or NONE.
+   */
+  @Override
+  public int getFirstChild(int el, String name)
+  {
+    Integer nameSymbol = symbolIndex.get(name);
+    if(nameSymbol == null) return NONE;
+
+    for(int child = firstChild[el]; child != NONE; child = nextSibling[child])
+    {
+      if(elementName[child] == nameSymbol) return child;
+    }
+
+    return NONE;
+  }
+
+  /**
+   * <p>Get the next element with the same parent and the same name.
+   * 
+   * @param el
+   * @return the sibling, or NONE.
+   */
+  @Override
+  public int getNextSameName(int el)
+  {
+    return nextSameName[el];
+  }
+
+  /**
+   * <p>Calculate a 128-bit hash of every element's subtree: its name, attributes, text and the hashes of its children in
+   * order, along with the imports of the document and the given context.  The imports and context decide which handler
+   * each element gets, so two subtrees with the same hash are resolved in the same way.  The hash is not cryptographic,
+   * but two different subtrees of a source hashing the same is too unlikely to matter.  Must be called before the tree
+   * is changed by {@link #retype(int, String, String)}.
+   *
+   * @param context anything else that changes how elements are resolved.
+   * @return the two halves of each element's hash, at twice the element's index and the position after.
+   */
+  long[] subtreeHashes(String context)
+  {
+    //Every subtree starts from the hash of the imports and context.
+    long c1 = hash(context, 0x9E3779B97F4A7C15L, 0x100000001B3L);
+    long c2 = hash(context, 0xC2B2AE3D27D4EB4FL, 0xFF51AFD7ED558CCDL);
+    for(String import_ : importList)
+    {
+      c1 = combine1(c1, hash(import_, 0x9E3779B97F4A7C15L, 0x100000001B3L));
+      c2 = combine2(c2, hash(import_, 0xC2B2AE3D27D4EB4FL, 0xFF51AFD7ED558CCDL));
+    }
+
+    //Hash each symbol once.
+    long[] symbolHashes = new long[symbolCount * 2];
+    for(int i = 0; i < symbolCount; i++)
+    {
+      symbolHashes[2 * i] = hash(symbols[i], 0x9E3779B97F4A7C15L, 0x100000001B3L);
+      symbolHashes[2 * i + 1] = hash(symbols[i], 0xC2B2AE3D27D4EB4FL, 0xFF51AFD7ED558CCDL);
+    }
+
+    long[] hashes = new long[elementCount * 2];
+
+    //Children are always numbered after their parent, so working backwards visits every child before its parent.
+    for(int el = elementCount - 1; el >= 0; el--)
+    {
+      int end = attributeStart[el] + attributeCount[el];
+      long h1 = combine1(c1, 0x2545F4914F6CDD1DL ^ attributeCount[el]);
+      long h2 = combine2(c2, 0x5851F42D4C957F2DL ^ attributeCount[el]);
+
+      h1 = combine1(h1, symbolHashes[2 * elementName[el]]);
+      h2 = combine2(h2, symbolHashes[2 * elementName[el] + 1]);
+      h1 = combine1(h1, (text[el] != NONE) ? symbolHashes[2 * text[el]] : 0);
+      h2 = combine2(h2, (text[el] != NONE) ? symbolHashes[2 * text[el] + 1] : 0);
+
+      for(int i = attributeStart[el]; i < end; i++)
+      {
+        h1 = combine1(combine1(h1, symbolHashes[2 * attributeName[i]]), hash(attributeValue[i], 0x9E3779B97F4A7C15L, 0x100000001B3L));
+        h2 = combine2(combine2(h2, symbolHashes[2 * attributeName[i] + 1]), hash(attributeValue[i], 0xC2B2AE3D27D4EB4FL, 0xFF51AFD7ED558CCDL));
+      }
+
+      for(int child = firstChild[el]; child != NONE; child = nextSibling[child])
+      {
+        h1 = combine1(h1, hashes[2 * child]);
+        h2 = combine2(h2, hashes[2 * child + 1]);
+      }
+
+      hashes[2 * el] = finish(h1);
+      hashes[2 * el + 1] = finish(h2);
+    }
+
+    return hashes;
+  }
+
+  private static long hash(String s, long seed, long multiplier)
+  {
+    long h = seed ^ s.length();
+    for(int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * multiplier;
+    return finish(h);
+  }
+
+  private static long combine1(long h, long value)
+  {
+    return Long.rotateLeft(h ^ value, 27) * 0x9FB21C651E98DF25L + 0x7F4A7C15L;
+  }
+
+  private static long combine2(long h, long value)
+  {
+    return Long.rotateLeft(h ^ value, 31) * 0xD6E8FEB86659FD93L + 0x165667B1L;
+  }
+
+  private static long finish(long h)
+  {
+    h ^= h >>> 33;
+    h *= 0xFF51AFD7ED558CCDL;
+    h ^= h >>> 33;
+    h *= 0xC4CEB9FE1A85EC53L;
+    return h ^ (h >>> 33);
+  }
+
+  /**
+   * <p>Give the document element a different name and hide one of its attributes, in place.  Used for fx:root, which is
+   * handled as an element named after its type attribute.  Nothing is copied: the element keeps its children and other
+   * attributes.  The document element has no siblings, so no same-name links change.
+   *
+   * @param el
+   * @param name the new name.
+   * @param hiddenAttribute an attribute which is no longer reported.
+   */
+  void retype(int el, String name, String hiddenAttribute)
+  {
+    elementName[el] = symbol(name);
+
+    int i = findAttribute(el, hiddenAttribute);
+    if(i == NONE) return;
+
+    //Close the gap so the remaining attributes stay in order.  The element's run becomes one shorter.
+    int end = attributeStart[el] + attributeCount[el];
+    System.arraycopy(attributeName, i + 1, attributeName, i, end - i - 1);
+    System.arraycopy(attributeValue, i + 1, attributeValue, i, end - i - 1);
+    attributeCount[el]--;
+  }
+
+  /**
+   * <p>Link each child of a finished element to its next sibling with the same name.  One pass over the children.
+   * 
+   * @param el
+   */
+  private void linkSameName(int el)
+  {
+    if(lastWithName.length < symbolCount)
+    {
+      int size = lastWithName.length;
+      lastWithName = Arrays.copyOf(lastWithName, symbols.length);
+      Arrays.fill(lastWithName, size, lastWithName.length, NONE);
+    }
+
+    for(int child = firstChild[el]; child != NONE; child = nextSibling[child])
+    {
+      int previous = lastWithName[elementName[child]];
+      if(previous != NONE) nextSameName[previous] = child;
+      lastWithName[elementName[child]] = child;
+    }
+
+    //Clear the entries used.
+    for(int child = firstChild[el]; child != NONE; child = nextSibling[child]) lastWithName[elementName[child]] = NONE;
+  }
+
+  private int findAttribute(int el, String name)
+  {
+    Integer nameSymbol = symbolIndex.get(name);
+    if(nameSymbol == null) return NONE;
+
+    int start = attributeStart[el];
+    for(int i = start; i < start + attributeCount[el]; i++)
+    {
+      if(attributeName[i] == nameSymbol) return i;
+    }
+
+    return NONE;
+  }
+
+  private int newElement(String name)
+  {
+    if(elementCount == elementName.length)
+    {
+      int size = elementCount * 2;
+      elementName = Arrays.copyOf(elementName, size);
+      parent = Arrays.copyOf(parent, size);
+      firstChild = Arrays.copyOf(firstChild, size);
+      lastChild = Arrays.copyOf(lastChild, size);
+      nextSibling = Arrays.copyOf(nextSibling, size);
+      nextSameName = Arrays.copyOf(nextSameName, size);
+      attributeStart = Arrays.copyOf(attributeStart, size);
+      attributeCount = Arrays.copyOf(attributeCount, size);
+      text = Arrays.copyOf(text, size);
+    }
+
+    int el = elementCount++;
+    elementName[el] = symbol(name);
+    parent[el] = NONE;
+    firstChild[el] = NONE;
+    lastChild[el] = NONE;
+    nextSibling[el] = NONE;
+    nextSameName[el] = NONE;
+    attributeStart[el] = attributeTotal;
+    attributeCount[el] = 0;
+    text[el] = NONE;
+
+    return el;
+  }
+
+  private int symbol(String s)
+  {
+    Integer index = symbolIndex.get(s);
+    if(index != null) return index;
+
+    if(symbolCount == symbols.length) symbols = Arrays.copyOf(symbols, symbolCount * 2);
+    symbols[symbolCount] = s;
+    symbolIndex.put(s, symbolCount);
+
+    return symbolCount++;
+  }
+}
@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 /**
  * <p>Special support for Color.  This is immutable and arguments must be specified in the constructor.  Arguments can be specified
  * by attributes or sub-elements.
@@ -36,10 +32,10 @@ public class FontElement extends FXMLElement
    * 
    * @param element
    */
-  public FontElement(Element element, ElementCreator elCreator)
+  public FontElement(int element, ElementCreator elCreator)
   {
     //Create skeleton superclass with no instructions.
-    super(elCreator, element.getNodeName());
+    super(elCreator, elCreator.getTree().getName(element));
     
     //Check the import for javafx.scene.text.Font.
     checkImport("javafx.scene.text.Font");
@@ -50,36 +46,27 @@ public class FontElement extends FXMLElement
     
     //Attempt to set from attributes.
     String attrString = "";
-    if( !"".equals(attrString = element.getAttribute("name"))) name = propHandler.getPropertyValue("name", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("size"))) size =  propHandler.getPropertyValue("_double", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "name"))) name = propHandler.getPropertyValue("name", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "size"))) size =  propHandler.getPropertyValue("size", attrString, this);
     
     //Unlikely but allow for sub-element property values.
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int el = tree.getFirstChild(element); el != FXMLTree.NONE; el = tree.getNextSibling(el))
     {
-      //Only process element nodes.
-      Node nd = childNodes.item(i);
-      if(nd.getNodeType() == Node.ELEMENT_NODE)
+      //Check element name.
+      String tagname = tree.getName(el);
+      //If element tag reflects a known constructor argument then set the argument value.
+      switch(tagname)
       {
-        //Cast to element.
-        Element el = (Element) nd;
-        
-        //Check element name.
-        String tagname = el.getTagName();
-        //If element tag reflects a known constructor argument then set the argument value.
-        switch(tagname)
-        {
-          case "name":
-            name = propHandler.getPropertyValue("name", el.getTextContent(), this);
-            break;
-          case "size":
-            size = propHandler.getPropertyValue("_double", el.getTextContent(), this);
-            break;
-        }
+        case "name":
+          name = propHandler.getPropertyValue("name", tree.getTextContent(el), this);
+          break;
+        case "size":
+          size = propHandler.getPropertyValue("size", tree.getTextContent(el), this);
+          break;
       }
     }
     
     //OK - finished processing constructor arguments.  Declare the constructor instruction.
-    addInstanceInstruction("Font " + instanceName + " = Font.font(" + ( (!"".equals(name)) ? name + ", " : "") + size + ");");    
+    addInstanceInstruction((!"".equals(name)) ? Instruction.construct("Font", instanceName, "Font.font", name, size) : Instruction.construct("Font", instanceName, "Font.font", size));
   }
 }
@@ -0,0 +1,90 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.IOException;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.UnaryOperator;
+
+import fxml2java.StringReceiver;
+
+/**
+ * <p>Stands in for an element that is being created on another thread.  Until the resolution is finished only the
+ * instance name can be used, and it is a placeholder which is replaced by the real name once every id is known.
+ * 
+ * @author James David Foster
+ *
+ */
+final class ForkedElement extends FXMLElement
+{
+  /**
+   * <p>Creates the element.
+   */
+  private final ForkJoinTask<FXMLElement> task;
+
+  /**
+   * <p>Create for a forked element.
+   * 
+   * @param instanceDataType
+   * @param instanceName placeholder name.
+   * @param task
+   */
+  ForkedElement(String instanceDataType, String instanceName, ForkJoinTask<FXMLElement> task)
+  {
+    super(instanceDataType, "", instanceName, false);
+    this.task = task;
+  }
+
+  /**
+   * <p>Wait for the element to be created.
+   * 
+   * @return
+   */
+  FXMLElement join()
+  {
+    return task.join();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  ResolvedElement toResolvedElement()
+  {
+    return join().toResolvedElement();
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  void replaceInstructions(UnaryOperator<String> f)
+  {
+    join().replaceInstructions(f);
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void outputInstructions(StringReceiver receiver) throws IOException
+  {
+    join().outputInstructions(receiver);
+  }
+}
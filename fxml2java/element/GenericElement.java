@@ -0,0 +1,105 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * <p>Support for JavaFX classes that have no hand-written element, such as SplitPane, TitledPane or MenuBar.  The class is
+ * found from the imports of the FXML and introspected (see {@link ElementType}):
+ * <ul>
+ * <li>elements nested directly inside the element belong to its default property, and are added to it if it is a list
+ * or set if it is not;</li>
+ * <li>property elements of list properties have all of their elements added in one call;</li>
+ * <li>everything else is handled the same way as any other element.</li>
+ * </ul>
+ * 
+ * @author James David Foster
+ *
+ */
+public class GenericElement extends FXMLElement
+{
+  /**
+   * <p>Create an element of an introspected class.
+   * 
+   * @param element
+   * @param elCreator
+   */
+  public GenericElement(int element, ElementCreator elCreator)
+  {
+    super(element, elCreator);
+  }
+
+  /**
+   * <p>Add nested elements to the properties the introspected class defines for them.
+   */
+  @Override
+  protected void handleElement(int element)
+  {
+    ElementType type = getElementType();
+    String name = tree.getName(element);
+
+    if(isInstanceElement(element))
+    {
+      //No default property - added as a child.
+      if(type.defaultProperty == null)
+      {
+        super.handleElement(element);
+        return;
+      }
+
+      FXMLElement subNode = createSubNode(element);
+      addSubNode(subNode);
+
+      if(type.isList(type.defaultProperty))
+        addInstanceInstruction(Instruction.add(instanceName, type.defaultProperty, subNode.instanceName));
+      else
+        addInstanceInstruction(Instruction.setProperty(instanceName, type.defaultProperty, subNode.instanceName));
+    }
+    else if(type.isList(name))
+    {
+      handleList(element, name);
+    }
+    else
+    {
+      super.handleElement(element);
+    }
+  }
+
+  /**
+   * <p>Add every element of a list property element with one instruction.
+   * 
+   * @param element
+   * @param list
+   */
+  private void handleList(int element, String list)
+  {
+    List<String> values = new ArrayList<>();
+
+    for(int item = tree.getFirstChild(element); item != FXMLTree.NONE; item = tree.getNextSibling(item))
+    {
+      FXMLElement subNode = createSubNode(item);
+      addSubNode(subNode);
+      values.add(subNode.instanceName);
+    }
+
+    addInstanceInstruction(Instruction.addAll(instanceName, list, values.toArray(new String[] {})));
+  }
+}
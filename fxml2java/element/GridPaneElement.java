@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 /**
  * <p>Special handling for the GridPane datatype.  Handle column and row constraint directives.
  * 
@@ -35,15 +31,15 @@ public class GridPaneElement extends RegionElement
    * 
    * @param element
    */
-  public GridPaneElement(Element element, ElementCreator elCreator)
+  public GridPaneElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
 
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
-    switch (element.getNodeName())
+    switch (tree.getName(element))
     {
       // Constraints.
       case "rowConstraints":
@@ -58,47 +54,31 @@ public class GridPaneElement extends RegionElement
     
   }
   
-  private void handleRowConstraints(Element element)
+  private void handleRowConstraints(int element)
   {
     // Get each constraint element and add instructions for it.
-    NodeList childNodes = element.getChildNodes();
-    for (int i = 0; i < childNodes.getLength(); i++)
+    for (int constraint = tree.getFirstChild(element); constraint != FXMLTree.NONE; constraint = tree.getNextSibling(constraint))
     {
-      Node item = childNodes.item(i);
-      if (item.getNodeType() == Node.ELEMENT_NODE)
-      {
-        // Constraint.
-        Element constraint = (Element) item;
-        
-        // Create the constraint instance.
-        FXMLElement createSubNode = createSubNode(constraint);
-        addSubNode(createSubNode);
-        
-        // Add the constraint to the instance.
-        addInstanceInstruction(instanceName + ".getRowConstraints().add(" + createSubNode.instanceName + ");");
-      }
+      // Create the constraint instance.
+      FXMLElement createSubNode = createSubNode(constraint);
+      addSubNode(createSubNode);
+      
+      // Add the constraint to the instance.
+      addInstanceInstruction(Instruction.add(instanceName, "rowConstraints", createSubNode.instanceName));
     }
   }
   
-  private void handleColumnConstraints(Element element)
+  private void handleColumnConstraints(int element)
   {
     // Get each constraint element and add instructions for it.
-    NodeList childNodes = element.getChildNodes();
-    for (int i = 0; i < childNodes.getLength(); i++)
+    for (int constraint = tree.getFirstChild(element); constraint != FXMLTree.NONE; constraint = tree.getNextSibling(constraint))
     {
-      Node item = childNodes.item(i);
-      if (item.getNodeType() == Node.ELEMENT_NODE)
-      {
-        // Constraint.
-        Element constraint = (Element) item;
-        
-        // Create the constraint instance.
-        FXMLElement createSubNode = createSubNode(constraint);
-        addSubNode(createSubNode);
-        
-        // Add the constraint to the instance.
-        addInstanceInstruction(instanceName + ".getColumnConstraints().add(" + createSubNode.instanceName + ");");
-      }
+      // Create the constraint instance.
+      FXMLElement createSubNode = createSubNode(constraint);
+      addSubNode(createSubNode);
+      
+      // Add the constraint to the instance.
+      addInstanceInstruction(Instruction.add(instanceName, "columnConstraints", createSubNode.instanceName));
     }
   }
   
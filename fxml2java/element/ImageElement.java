@@ -20,9 +20,6 @@ package fxml2java.element;
 
 import java.io.File;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
 
 import fxml2java.util.Util;
 
@@ -40,37 +37,28 @@ public class ImageElement extends FXMLElement
    * 
    * @param element
    */
-  public ImageElement(Element element, ElementCreator elCreator)
+  public ImageElement(int element, ElementCreator elCreator)
   {
     //Create skeleton superclass with no instructions.
-    super(elCreator, element.getNodeName());
+    super(elCreator, elCreator.getTree().getName(element));
     
     //Check the import for javafx.scene.image.Image.
     checkImport("javafx.scene.image.Image");
     
     //Image values:
-    String urlString = element.getAttribute("url");
+    String urlString = tree.getAttribute(element, "url");
     
     //Unlikely but allow for sub-element property values.
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int el = tree.getFirstChild(element); el != FXMLTree.NONE; el = tree.getNextSibling(el))
     {
-      //Only process element nodes.
-      Node nd = childNodes.item(i);
-      if(nd.getNodeType() == Node.ELEMENT_NODE)
+      //Check element name.
+      String tagname = tree.getName(el);
+      //If element tag reflects a known constructor argument then set the argument value.
+      switch(tagname)
       {
-        //Cast to element.
-        Element el = (Element) nd;
-        
-        //Check element name.
-        String tagname = el.getTagName();
-        //If element tag reflects a known constructor argument then set the argument value.
-        switch(tagname)
-        {
-          case "url":
-            urlString = el.getTextContent();
-            break;
-        }
+        case "url":
+          urlString = tree.getTextContent(el);
+          break;
       }
     }
     
@@ -81,13 +69,13 @@ public class ImageElement extends FXMLElement
     if(!urlString.startsWith(File.pathSeparator))
     {
       //Find the resource in the classpath.
-      urlString = Util.findRelativeResourceLocation(elCreator.getDescriptor().sourceLocation, urlString);
+      urlString = Util.findRelativeResourceLocation(elCreator.getDescriptorImpl().sourcePath, urlString);
     }
     
     //Constructor argument.
     String cArg = "getClass().getResourceAsStream(\"" + urlString + "\")";
 
     //OK - finished processing constructor arguments.  Declare the constructor instruction.
-    addInstanceInstruction("Image " + instanceName + " = new Image(" + cArg + ");");    
+    addInstanceInstruction(Instruction.construct("Image", instanceName, "new Image", cArg));
   }
 }
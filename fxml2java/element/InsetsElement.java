@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 /**
  * <p>Special support for Color.  This is immutable and arguments must be specified in the constructor.  Arguments can be specified
  * by attributes or sub-elements.
@@ -36,10 +32,10 @@ public class InsetsElement extends FXMLElement
    * 
    * @param element
    */
-  public InsetsElement(Element element, ElementCreator elCreator)
+  public InsetsElement(int element, ElementCreator elCreator)
   {
     //Create skeleton superclass with no instructions.
-    super(elCreator, element.getNodeName());
+    super(elCreator, elCreator.getTree().getName(element));
     
     //Check the import for javafx.geometry.Insets.
     checkImport("javafx.geometry.Insets");
@@ -52,48 +48,39 @@ public class InsetsElement extends FXMLElement
     
     //Attempt to set from attributes.
     String attrString = "";
-    if( !"".equals(attrString = element.getAttribute("topRightBottomLeft"))) top = right = bottom = left = propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("top"))) top = propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("right"))) right =  propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("bottom"))) bottom = propHandler.getPropertyValue("_double", attrString, this);
-    if( !"".equals(attrString = element.getAttribute("left"))) left = propHandler.getPropertyValue("_double", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "topRightBottomLeft"))) top = right = bottom = left = propHandler.getPropertyValue("topRightBottomLeft", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "top"))) top = propHandler.getPropertyValue("top", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "right"))) right =  propHandler.getPropertyValue("right", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "bottom"))) bottom = propHandler.getPropertyValue("bottom", attrString, this);
+    if( !"".equals(attrString = tree.getAttribute(element, "left"))) left = propHandler.getPropertyValue("left", attrString, this);
     
     //Unlikely but allow for sub-element property values.
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int el = tree.getFirstChild(element); el != FXMLTree.NONE; el = tree.getNextSibling(el))
     {
-      //Only process element nodes.
-      Node nd = childNodes.item(i);
-      if(nd.getNodeType() == Node.ELEMENT_NODE)
+      //Check element name.
+      String tagname = tree.getName(el);
+      //If element tag reflects a known constructor argument then set the argument value.
+      switch(tagname)
       {
-        //Cast to element.
-        Element el = (Element) nd;
-        
-        //Check element name.
-        String tagname = el.getTagName();
-        //If element tag reflects a known constructor argument then set the argument value.
-        switch(tagname)
-        {
-          case "topRightBottomLeft":
-            top = right = bottom = left = el.getTextContent();
-            break;
-          case "top":
-            top = propHandler.getPropertyValue("top", el.getTextContent(), this);
-            break;
-          case "right":
-            right = propHandler.getPropertyValue("right", el.getTextContent(), this);
-            break;
-          case "bottom":
-            bottom = propHandler.getPropertyValue("bottom", el.getTextContent(), this);
-            break;
-          case "left":
-            left = propHandler.getPropertyValue("left", el.getTextContent(), this);
-            break;
-        }
+        case "topRightBottomLeft":
+          top = right = bottom = left = tree.getTextContent(el);
+          break;
+        case "top":
+          top = propHandler.getPropertyValue("top", tree.getTextContent(el), this);
+          break;
+        case "right":
+          right = propHandler.getPropertyValue("right", tree.getTextContent(el), this);
+          break;
+        case "bottom":
+          bottom = propHandler.getPropertyValue("bottom", tree.getTextContent(el), this);
+          break;
+        case "left":
+          left = propHandler.getPropertyValue("left", tree.getTextContent(el), this);
+          break;
       }
     }
     
     //OK - finished processing constructor arguments.  Declare the constructor instruction.
-    addInstanceInstruction("Insets " + instanceName + " = new Insets(" + top + ", " + right + ", " + bottom + ", " + left + ");");    
+    addInstanceInstruction(Instruction.construct("Insets", instanceName, "new Insets", top, right, bottom, left));
   }
 }
@@ -0,0 +1,412 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.util.function.UnaryOperator;
+
+import fxml2java.util.Util;
+
+/**
+ * <p>A Java statement that creates or configures an element instance.  Elements build their instructions from these
+ * operations rather than from finished statement strings, so that the instructions can be inspected before they are
+ * rendered as Java source.
+ * <p>Instances are immutable.
+ * 
+ * @author James David Foster
+ *
+ */
+public abstract class Instruction
+{
+  /**
+   * <p>The instance the instruction applies to.
+   */
+  public final String target;
+
+  private Instruction(String target)
+  {
+    this.target = target;
+  }
+
+  /**
+   * <p>Create the instance: <code>[Type ]name = creator(arguments);</code>
+   * 
+   * @param declaredType the type to declare the instance as a local variable with, or null if it is a field.
+   * @param instanceName
+   * @param creator constructor or factory method, for example <code>new Label</code> or <code>Font.font</code>.
+   * @param arguments
+   * @return
+   */
+  public static Instruction construct(String declaredType, String instanceName, String creator, String... arguments)
+  {
+    return new Construct(declaredType, instanceName, creator, arguments);
+  }
+
+  /**
+   * <p>Set a property of the instance: <code>target.setProperty(value);</code>
+   * 
+   * @param target
+   * @param property
+   * @param value
+   * @return
+   */
+  public static Instruction setProperty(String target, String property, String value)
+  {
+    return new SetProperty(target, property, value);
+  }
+
+  /**
+   * <p>Set a static (attached) property of the instance: <code>Owner.setProperty(target, value);</code>
+   * 
+   * @param owner
+   * @param property
+   * @param target
+   * @param value
+   * @return
+   */
+  public static Instruction staticSet(String owner, String property, String target, String value)
+  {
+    return new StaticSet(owner, property, target, value);
+  }
+
+  /**
+   * <p>Add a single value to a list property of the instance: <code>target.getList().add(value);</code>
+   * 
+   * @param target
+   * @param list
+   * @param value
+   * @return
+   */
+  public static Instruction add(String target, String list, String value)
+  {
+    return new AddChildren(target, list, false, value);
+  }
+
+  /**
+   * <p>Add values to a list property of the instance in one call: <code>target.getList().addAll(values);</code>
+   * 
+   * @param target
+   * @param list
+   * @param values
+   * @return
+   */
+  public static Instruction addAll(String target, String list, String... values)
+  {
+    return new AddChildren(target, list, true, values);
+  }
+
+  /**
+   * <p>Set an event handler of the instance to call a method of the controller: <code>target.setOnEvent((e) -> {method(e);});</code>
+   * 
+   * @param target
+   * @param event event property name, for example <code>onAction</code>.
+   * @param method
+   * @return
+   */
+  public static Instruction setHandler(String target, String event, String method)
+  {
+    return new SetHandler(target, event, method);
+  }
+
+  /**
+   * <p>Render the Java statement.
+   * 
+   * @return
+   */
+  public abstract String render();
+
+  /**
+   * <p>True if this instruction sets a single value, so that it can make an earlier instruction have no effect.
+   * 
+   * @return
+   */
+  boolean isSetter()
+  {
+    return true;
+  }
+
+  /**
+   * <p>True if this instruction makes the given earlier instruction have no effect, for example because it sets the
+   * same property of the same instance again.
+   * 
+   * @param earlier
+   * @return
+   */
+  abstract boolean supersedes(Instruction earlier);
+
+  /**
+   * <p>Apply a function to every name and value of the instruction.
+   * 
+   * @param f
+   * @return the new instruction.
+   */
+  abstract Instruction replace(UnaryOperator<String> f);
+
+  @Override
+  public String toString()
+  {
+    return render();
+  }
+
+  private static String[] replaceAll(String[] strings, UnaryOperator<String> f)
+  {
+    String[] replaced = new String[strings.length];
+    for(int i = 0; i < strings.length; i++) replaced[i] = f.apply(strings[i]);
+    return replaced;
+  }
+
+  /**
+   * <p>Create the instance.
+   */
+  public static final class Construct extends Instruction
+  {
+    /**
+     * <p>Local variable type, or null if the instance is a field.
+     */
+    public final String declaredType;
+
+    /**
+     * <p>Constructor or factory method.
+     */
+    public final String creator;
+
+    private final String[] arguments;
+
+    private Construct(String declaredType, String instanceName, String creator, String[] arguments)
+    {
+      super(instanceName);
+      this.declaredType = declaredType;
+      this.creator = creator;
+      this.arguments = arguments;
+    }
+
+    /**
+     * <p>Get the creator arguments.
+     * 
+     * @return
+     */
+    public String[] getArguments()
+    {
+      return arguments.clone();
+    }
+
+    @Override
+    public String render()
+    {
+      return ((declaredType != null) ? declaredType + " " : "") + target + " = " + creator + "(" + String.join(", ", arguments) + ");";
+    }
+
+    @Override
+    boolean isSetter()
+    {
+      return false;
+    }
+
+    @Override
+    boolean supersedes(Instruction earlier)
+    {
+      return false;
+    }
+
+    @Override
+    Instruction replace(UnaryOperator<String> f)
+    {
+      return new Construct((declaredType != null) ? f.apply(declaredType) : null, f.apply(target), f.apply(creator), replaceAll(arguments, f));
+    }
+  }
+
+  /**
+   * <p>Set a property of the instance.
+   */
+  public static final class SetProperty extends Instruction
+  {
+    public final String property;
+
+    public final String value;
+
+    private SetProperty(String target, String property, String value)
+    {
+      super(target);
+      this.property = property;
+      this.value = value;
+    }
+
+    @Override
+    public String render()
+    {
+      return target + ".set" + Util.capitalise(property) + "(" + value + ");";
+    }
+
+    @Override
+    boolean supersedes(Instruction earlier)
+    {
+      return earlier instanceof SetProperty && target.equals(earlier.target) && property.equals(((SetProperty)earlier).property);
+    }
+
+    @Override
+    Instruction replace(UnaryOperator<String> f)
+    {
+      return new SetProperty(f.apply(target), property, f.apply(value));
+    }
+  }
+
+  /**
+   * <p>Set a static (attached) property of the instance, such as a layout constraint.
+   */
+  public static final class StaticSet extends Instruction
+  {
+    /**
+     * <p>The class that defines the property.
+     */
+    public final String owner;
+
+    public final String property;
+
+    public final String value;
+
+    private StaticSet(String owner, String property, String target, String value)
+    {
+      super(target);
+      this.owner = owner;
+      this.property = property;
+      this.value = value;
+    }
+
+    @Override
+    public String render()
+    {
+      return owner + ".set" + Util.capitalise(property) + "(" + target + ", " + value + ");";
+    }
+
+    @Override
+    boolean supersedes(Instruction earlier)
+    {
+      if(!(earlier instanceof StaticSet)) return false;
+      StaticSet e = (StaticSet)earlier;
+      return target.equals(e.target) && owner.equals(e.owner) && property.equals(e.property);
+    }
+
+    @Override
+    Instruction replace(UnaryOperator<String> f)
+    {
+      return new StaticSet(owner, property, f.apply(target), f.apply(value));
+    }
+  }
+
+  /**
+   * <p>Add values to a list property of the instance, such as its children, columns or style classes.
+   */
+  public static final class AddChildren extends Instruction
+  {
+    /**
+     * <p>The list property, for example <code>children</code>.
+     */
+    public final String list;
+
+    /**
+     * <p>True to add the values with one call to addAll.
+     */
+    public final boolean all;
+
+    private final String[] values;
+
+    private AddChildren(String target, String list, boolean all, String... values)
+    {
+      super(target);
+      this.list = list;
+      this.all = all;
+      this.values = values;
+    }
+
+    /**
+     * <p>Get the values added.
+     * 
+     * @return
+     */
+    public String[] getValues()
+    {
+      return values.clone();
+    }
+
+    @Override
+    public String render()
+    {
+      return target + ".get" + Util.capitalise(list) + "()." + (all ? "addAll(" : "add(") + String.join(", ", values) + ");";
+    }
+
+    @Override
+    boolean isSetter()
+    {
+      //Every add has an effect.
+      return false;
+    }
+
+    @Override
+    boolean supersedes(Instruction earlier)
+    {
+      return false;
+    }
+
+    @Override
+    Instruction replace(UnaryOperator<String> f)
+    {
+      return new AddChildren(f.apply(target), list, all, replaceAll(values, f));
+    }
+  }
+
+  /**
+   * <p>Set an event handler of the instance.
+   */
+  public static final class SetHandler extends Instruction
+  {
+    /**
+     * <p>The event property, for example <code>onAction</code>.
+     */
+    public final String event;
+
+    /**
+     * <p>The controller method called.
+     */
+    public final String method;
+
+    private SetHandler(String target, String event, String method)
+    {
+      super(target);
+      this.event = event;
+      this.method = method;
+    }
+
+    @Override
+    public String render()
+    {
+      return target + ".set" + Util.capitalise(event) + "((e) -> {" + method + "(e);});";
+    }
+
+    @Override
+    boolean supersedes(Instruction earlier)
+    {
+      return earlier instanceof SetHandler && target.equals(earlier.target) && event.equals(((SetHandler)earlier).event);
+    }
+
+    @Override
+    Instruction replace(UnaryOperator<String> f)
+    {
+      return new SetHandler(f.apply(target), event, method);
+    }
+  }
+}
@@ -0,0 +1,127 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import fxml2java.StringReceiver;
+
+/**
+ * <p>Element instructions written out to a temporary file as each element is finished, so that they do not have to be
+ * kept in memory until the generated code is written.  The instructions can be read back as many times as needed, in
+ * the order they were received.  The file is deleted when the spill is closed.
+ * 
+ * @author James David Foster
+ *
+ */
+final class InstructionSpill implements StringReceiver, Closeable
+{
+  /**
+   * <p>The temporary file.
+   */
+  private final FileChannel channel;
+
+  /**
+   * <p>Writes instructions to the end of the file.
+   */
+  private final DataOutputStream out;
+
+  /**
+   * <p>Number of instructions written.
+   */
+  private int count;
+
+  /**
+   * <p>Create an empty spill in the default temporary directory.
+   * 
+   * @throws IOException
+   */
+  InstructionSpill() throws IOException
+  {
+    Path file = Files.createTempFile("fxml2java", ".spill");
+    try
+    {
+      channel = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE, StandardOpenOption.DELETE_ON_CLOSE);
+    }
+    catch(IOException e)
+    {
+      Files.deleteIfExists(file);
+      throw e;
+    }
+
+    //The stream writes at the channel's position, which is kept at the end of the file.
+    out = new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+  }
+
+  /**
+   * <p>Add an instruction.
+   * 
+   * @param string
+   * @throws IOException
+   */
+  @Override
+  public void receive(String string) throws IOException
+  {
+    FXMLTree.writeString(out, string);
+    count++;
+  }
+
+  /**
+   * <p>Send every instruction received so far to the receiver, in order.
+   * 
+   * @param receiver
+   * @throws IOException
+   */
+  void replay(StringReceiver receiver) throws IOException
+  {
+    out.flush();
+    long end = channel.position();
+
+    try
+    {
+      //Not closed - that would close the channel.
+      DataInputStream in = new DataInputStream(new BufferedInputStream(Channels.newInputStream(channel.position(0))));
+      for(int i = 0; i < count; i++) receiver.receive(FXMLTree.readString(in));
+    }
+    finally
+    {
+      channel.position(end);
+    }
+  }
+
+  /**
+   * <p>Delete the file.
+   */
+  @Override
+  public void close() throws IOException
+  {
+    //Closes the channel as well.
+    out.close();
+  }
+}
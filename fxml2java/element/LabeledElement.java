@@ -18,8 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-
 /**
  * <p>Special support for labeled graphic property.  Support the creation of an ImageView with an image.
  * 
@@ -33,16 +31,16 @@ public class LabeledElement extends RegionElement
    * 
    * @param element
    */
-  public LabeledElement(Element element, ElementCreator elCreator)
+  public LabeledElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
 
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
     //Handle inner elements.
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       //Graphic property.
       case "graphic":
@@ -53,11 +51,11 @@ public class LabeledElement extends RegionElement
     }
   }
 
-  private void handleGraphic(Element element)
+  private void handleGraphic(int element)
   {
     //The graphic element refers to the graphic property of the Labeled instance.  This is a Node instance.
     //Graphic element has one child which is an <ImageView> element.
-    Element item = (Element) element.getElementsByTagName("ImageView").item(0);
+    int item = tree.getFirstChild(element, "ImageView");
     
     //Create the image.
     FXMLElement createSubNode = createSubNode(item);
@@ -66,7 +64,7 @@ public class LabeledElement extends RegionElement
     //
     //SPECIAL CASE: the inner workings of the <ImageView> are non-standard.  To make sure the call happens in the right place, attach it to the
     //sub node.  This element's instructions will be output first followed by sub nodes.
-    addInstanceInstruction(instanceName + ".setGraphic(" + createSubNode.instanceName + ");");
+    addInstanceInstruction(Instruction.setProperty(instanceName, "graphic", createSubNode.instanceName));
     
     //Add to sub nodes.
     addSubNode(createSubNode);
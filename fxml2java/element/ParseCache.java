@@ -0,0 +1,319 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+
+import fxml2java.util.Util;
+
+/**
+ * <p>On-disk store of parsed element trees, so that a source whose content has not changed is resolved again without
+ * parsing any XML.  The cache keeps the latest parsed {@link FXMLTree} of each source file, in its binary form, with a
+ * hash of the generator key, the entry format version and the content it was parsed from.  The tree is only used if the
+ * source still has that content.
+ * <p>The cache also keeps the latest {@link ResolvedTree} of each source file, so that an edited source can be resolved
+ * incrementally after a restart.
+ * <p>Entries are keyed by the file's location, so storing a source's tree or resolution replaces the previous one and
+ * the cache holds at most two entries per source file however often the sources change.  Each entry starts with a header
+ * repeating the format version and generator key, and an entry written by a different generator or format is never
+ * read.  Entries are written to a temporary file and renamed into place, so a reader never sees a partial entry.
+ * 
+ * @author James David Foster
+ *
+ */
+public class ParseCache
+{
+  /**
+   * <p>First bytes of every entry.
+   */
+  private static final int MAGIC = 0x46585452;
+
+  /**
+   * <p>Version of the entry format.  Increase it whenever {@link FXMLTree#write(java.io.DataOutput)} or
+   * {@link ResolvedTree#write(java.io.DataOutput)} changes.
+   */
+  private static final int FORMAT_VERSION = 2;
+
+  /**
+   * <p>The cache directory.
+   */
+  private final Path directory;
+
+  /**
+   * <p>Conversion key for the generator version and options.  Included in every key and entry header.
+   */
+  private final String generatorKey;
+
+  /**
+   * <p>Create a cache in the given directory.
+   * 
+   * @param directory
+   * @param generatorKey
+   * @throws IOException if the directory can not be created.
+   */
+  public ParseCache(Path directory, String generatorKey) throws IOException
+  {
+    this.directory = directory;
+    this.generatorKey = generatorKey;
+
+    Files.createDirectories(directory);
+  }
+
+  /**
+   * <p>Calculate the key for some source content.
+   * 
+   * @param content the buffer's position is not changed.
+   * @return hex string key.
+   */
+  String key(ByteBuffer content)
+  {
+    MessageDigest md = newDigest();
+    md.update(content.duplicate());
+    return hex(md.digest());
+  }
+
+  /**
+   * <p>Fetch the tree of the given source file, if it was parsed from content with the given key.
+   * 
+   * @param sourceFile
+   * @param key
+   * @return the tree, or null if there is no usable entry.
+   */
+  FXMLTree fetch(Path sourceFile, String key)
+  {
+    try (DataInputStream in = openEntry(entryFile(locationKey(sourceFile), ".tree")))
+    {
+      return (in != null && key.equals(in.readUTF())) ? FXMLTree.read(in) : null;
+    }
+    catch (IOException e)
+    {
+      // Missing, unreadable or damaged - treat as a miss. It is replaced when the source is parsed again.
+      return null;
+    }
+  }
+
+  /**
+   * <p>Store the tree of the given source file, parsed from content with the given key, replacing the previous one.  The
+   * tree must be stored before it is resolved, because resolving can change it.
+   * 
+   * @param sourceFile
+   * @param key
+   * @param tree
+   * @throws IOException
+   */
+  void store(Path sourceFile, String key, FXMLTree tree) throws IOException
+  {
+    store(entryFile(locationKey(sourceFile), ".tree"), (out) -> {
+      out.writeUTF(key);
+      tree.write(out);
+    });
+  }
+
+  /**
+   * <p>Fetch the latest resolution of the given source file.
+   * 
+   * @param sourceFile
+   * @return the resolution, or null if there is no usable entry.
+   */
+  public ResolvedTree fetchResolved(String sourceFile)
+  {
+    return fetchResolved(Paths.get(sourceFile));
+  }
+
+  /**
+   * <p>Fetch the latest resolution of the given source file, which can be in any file system.
+   * 
+   * @param sourceFile
+   * @return the resolution, or null if there is no usable entry.
+   */
+  public ResolvedTree fetchResolved(Path sourceFile)
+  {
+    try (DataInputStream in = openEntry(entryFile(locationKey(sourceFile), ".resolved")))
+    {
+      return (in != null) ? ResolvedTree.read(in) : null;
+    }
+    catch (IOException e)
+    {
+      // Missing, unreadable or damaged - the file is resolved in full.
+      return null;
+    }
+  }
+
+  /**
+   * <p>Store the latest resolution of the given source file, replacing the previous one.
+   * 
+   * @param sourceFile
+   * @param resolvedTree
+   * @throws IOException
+   */
+  public void storeResolved(String sourceFile, ResolvedTree resolvedTree) throws IOException
+  {
+    storeResolved(Paths.get(sourceFile), resolvedTree);
+  }
+
+  /**
+   * <p>Store the latest resolution of the given source file, which can be in any file system, replacing the previous one.
+   * 
+   * @param sourceFile
+   * @param resolvedTree
+   * @throws IOException
+   */
+  public void storeResolved(Path sourceFile, ResolvedTree resolvedTree) throws IOException
+  {
+    store(entryFile(locationKey(sourceFile), ".resolved"), resolvedTree::write);
+  }
+
+  /**
+   * <p>Key of a source file's location.  It does not include the generator key, so that a new generator replaces the
+   * entries of the old one.
+   * 
+   * @param sourceFile
+   * @return
+   */
+  private static String locationKey(Path sourceFile)
+  {
+    MessageDigest md = sha256();
+    md.update("location".getBytes(StandardCharsets.UTF_8));
+    md.update((byte) 0);
+    md.update(Util.getLocation(sourceFile.toAbsolutePath().normalize()).getBytes(StandardCharsets.UTF_8));
+    return hex(md.digest());
+  }
+
+  /**
+   * <p>Start a digest with the generator key and format version, which every key includes.
+   * 
+   * @return
+   */
+  private MessageDigest newDigest()
+  {
+    MessageDigest md = sha256();
+    md.update(generatorKey.getBytes(StandardCharsets.UTF_8));
+    md.update((byte) 0);
+    md.update((byte) FORMAT_VERSION);
+    return md;
+  }
+
+  private static MessageDigest sha256()
+  {
+    try
+    {
+      return MessageDigest.getInstance("SHA-256");
+    }
+    catch (NoSuchAlgorithmException e)
+    {
+      // SHA-256 is required on every Java platform.
+      throw new IllegalStateException(e);
+    }
+  }
+
+  private static String hex(byte[] digest)
+  {
+    StringBuilder sb = new StringBuilder();
+    for (byte b : digest)
+      sb.append(String.format("%02x", b));
+
+    return sb.toString();
+  }
+
+  /**
+   * <p>Open an entry and check its header.
+   * 
+   * @param entry
+   * @return the entry positioned after its header, or null if the header does not match.
+   * @throws IOException
+   */
+  private DataInputStream openEntry(Path entry) throws IOException
+  {
+    DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(entry)));
+    try
+    {
+      if (in.readInt() == MAGIC && in.readInt() == FORMAT_VERSION && generatorKey.equals(in.readUTF()))
+        return in;
+    }
+    catch (IOException e)
+    {
+      in.close();
+      throw e;
+    }
+
+    in.close();
+    return null;
+  }
+
+  /**
+   * <p>Write an entry with its header.
+   * 
+   * @param entry
+   * @param content writes the content after the header.
+   * @throws IOException
+   */
+  private void store(Path entry, EntryWriter content) throws IOException
+  {
+    String name = entry.getFileName().toString();
+    Files.createDirectories(entry.getParent());
+
+    // Name the temporary file after this process and thread so that concurrent writers do not collide.
+    Path tmp = entry.resolveSibling(name + "." + ProcessHandle.current().pid() + "." + Thread.currentThread().getId() + ".tmp");
+    try
+    {
+      try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(tmp))))
+      {
+        out.writeInt(MAGIC);
+        out.writeInt(FORMAT_VERSION);
+        out.writeUTF(generatorKey);
+        content.write(out);
+      }
+
+      Files.move(tmp, entry, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+    }
+    finally
+    {
+      Files.deleteIfExists(tmp);
+    }
+  }
+
+  /**
+   * <p>Entries are spread over subdirectories named after the first two characters of the key.
+   * 
+   * @param key
+   * @return
+   */
+  private Path entryFile(String key, String extension)
+  {
+    return directory.resolve(key.substring(0, 2)).resolve(key + extension);
+  }
+
+  private interface EntryWriter
+  {
+    void write(DataOutput out) throws IOException;
+  }
+}
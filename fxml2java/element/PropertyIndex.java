@@ -0,0 +1,413 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * <p>Metadata of the properties of the JavaFX types, read from the <code>properties.index</code> resource that
+ * {@link PropertyIndexGenerator} creates from the JavaFX classes.  For each property the index records how it is set, the
+ * Java type of its value, how an FXML attribute value is converted to a Java expression of that type and the import the
+ * expression needs.
+ * <p>There is one index, loaded the first time it is used and shared by every element and thread.
+ * <p>The resource has one line for each type, followed by one line for each property the type declares:
+ * <pre>
+ * &gt;Type SuperType
+ * &lt;kind&gt;name CONVERTER ValueType [import]
+ * </pre>
+ * The kind is a space for a setter, <code>+</code> for a list property, <code>.</code> for a static property of the type
+ * and <code>=</code> for a named constructor argument.  Lines starting with <code>#</code> are comments.
+ * 
+ * @author James David Foster
+ *
+ */
+final class PropertyIndex
+{
+  /**
+   * <p>Name of the index resource, relative to this class.
+   */
+  static final String RESOURCE = "properties.index";
+
+  /**
+   * <p>How a property is set.
+   */
+  enum Kind
+  {
+    /**
+     * <p>Set with a setter of the instance.
+     */
+    SETTER(' '),
+
+    /**
+     * <p>A read-only list of the instance that values are added to.
+     */
+    LIST('+'),
+
+    /**
+     * <p>Set with a static setter of the owner type, which takes the instance as its first argument.
+     */
+    STATIC('.'),
+
+    /**
+     * <p>Only passed to the constructor.
+     */
+    ARGUMENT('=');
+
+    final char code;
+
+    private Kind(char code)
+    {
+      this.code = code;
+    }
+
+    static Kind of(char code)
+    {
+      for(Kind k : values()) if(k.code == code) return k;
+      throw new IllegalArgumentException("Unknown property kind " + code);
+    }
+  }
+
+  /**
+   * <p>Conversion of an FXML attribute value to a Java expression.
+   */
+  enum Converter
+  {
+    /**
+     * <p>Used as it is, for example a number or boolean.
+     */
+    LITERAL
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        return value;
+      }
+    },
+
+    /**
+     * <p>A floating point number, which may be infinite.
+     */
+    DOUBLE
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        switch (value)
+        {
+          case "-Infinity":
+            return "Double.NEGATIVE_INFINITY";
+          case "Infinity":
+            return "Double.POSITIVE_INFINITY";
+          default:
+            return value;
+        }
+      }
+    },
+
+    /**
+     * <p>A string literal.
+     */
+    STRING
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        return "\"" + value + "\"";
+      }
+    },
+
+    /**
+     * <p>A constant of an enum type.
+     */
+    ENUM
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        return valueType + "." + value;
+      }
+    },
+
+    /**
+     * <p>A constant declared by the type itself, such as Cursor.HAND, or a reference to an instance of the type.
+     */
+    CONSTANT
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        return value.startsWith("$") ? REFERENCE.convert(value, valueType) : valueType + "." + value;
+      }
+    },
+
+    /**
+     * <p>A web color, for a paint or color value.
+     */
+    COLOR
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        return "Color.web(\"" + value + "\")";
+      }
+    },
+
+    /**
+     * <p>Parsed by the static valueOf(String) method of the type.
+     */
+    VALUE_OF
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        return valueType + ".valueOf(\"" + value + "\")";
+      }
+    },
+
+    /**
+     * <p>A style sheet, which is found relative to the generated class.
+     */
+    STYLESHEET
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        //Strip leading @
+        if(value.startsWith("@")) value = value.substring(1);
+        return "Util.resolveRelativeResourceFilePath(getClass(), \"" + value + "\")";
+      }
+    },
+
+    /**
+     * <p>An instance defined elsewhere in the FXML, referred to by its id.
+     */
+    REFERENCE
+    {
+      @Override
+      String convert(String value, String valueType)
+      {
+        //Make sure leading $ is removed.
+        return value.startsWith("$") ? value.substring(1) : value;
+      }
+    };
+
+    /**
+     * <p>Convert an attribute value.
+     * 
+     * @param value
+     * @param valueType simple name of the value type.
+     * @return Java expression.
+     */
+    abstract String convert(String value, String valueType);
+  }
+
+  /**
+   * <p>A property of a type.
+   */
+  static final class Property
+  {
+    final String name;
+
+    final Kind kind;
+
+    final Converter converter;
+
+    /**
+     * <p>Simple name of the value type.  For a list property this is the type of the list's elements.
+     */
+    final String valueType;
+
+    /**
+     * <p>The import the converted value needs, or null if it needs none.
+     */
+    final String importName;
+
+    Property(String name, Kind kind, Converter converter, String valueType, String importName)
+    {
+      this.name = name;
+      this.kind = kind;
+      this.converter = converter;
+      this.valueType = valueType;
+      this.importName = importName;
+    }
+
+    /**
+     * <p>Convert an attribute value of this property.
+     * 
+     * @param value
+     * @return Java expression.
+     */
+    String convert(String value)
+    {
+      return converter.convert(value, valueType);
+    }
+
+    private boolean sameValue(Property p)
+    {
+      return converter == p.converter && valueType.equals(p.valueType) && kind == p.kind;
+    }
+  }
+
+  /**
+   * <p>The index, loaded the first time it is used.
+   */
+  private static final class Holder
+  {
+    static final PropertyIndex INDEX = load();
+  }
+
+  /**
+   * <p>The super type of each type, or null if it has none in the index.
+   */
+  private final Map<String, String> superTypes = new HashMap<>();
+
+  /**
+   * <p>The properties each type declares itself, by type and then name.
+   */
+  private final Map<String, Map<String, Property>> declared = new HashMap<>();
+
+  /**
+   * <p>Static properties, by <code>Owner.name</code>.
+   */
+  private final Map<String, Property> statics = new HashMap<>();
+
+  /**
+   * <p>Properties that have the same value wherever they are declared, for types that are not in the index.
+   */
+  private final Map<String, Property> unambiguous = new HashMap<>();
+
+  /**
+   * <p>All properties of each type that has been looked up, including inherited ones.
+   */
+  private final Map<String, Map<String, Property>> resolved = new ConcurrentHashMap<>();
+
+  private PropertyIndex()
+  {
+  }
+
+  /**
+   * <p>Get the shared index.
+   * 
+   * @return
+   */
+  static PropertyIndex get()
+  {
+    return Holder.INDEX;
+  }
+
+  /**
+   * <p>Find a property of a type.  A name containing a '.' is a static property, for example
+   * <code>GridPane.columnIndex</code>, and is found whatever the type.  Properties of types that are not in the index are
+   * only found if every type in the index that declares them agrees on their value.
+   * 
+   * @param type simple or qualified type name, for example Label.
+   * @param name
+   * @return the property, or null if it is not known.
+   */
+  Property find(String type, String name)
+  {
+    if(name.indexOf('.') != -1) return statics.get(name);
+
+    type = type.substring(type.lastIndexOf('.') + 1);
+    if(!declared.containsKey(type)) return unambiguous.get(name);
+
+    return resolved.computeIfAbsent(type, this::resolve).get(name);
+  }
+
+  /**
+   * <p>Collect the properties of a type and its super types.
+   * 
+   * @param type
+   * @return
+   */
+  private Map<String, Property> resolve(String type)
+  {
+    Map<String, Property> properties = new HashMap<>();
+    collect(type, properties);
+    return properties;
+  }
+
+  private void collect(String type, Map<String, Property> properties)
+  {
+    //Super types first, so that the type's own declarations replace theirs.
+    String superType = superTypes.get(type);
+    if(superType != null) collect(superType, properties);
+    properties.putAll(declared.get(type));
+  }
+
+  private static PropertyIndex load()
+  {
+    try (InputStream is = PropertyIndex.class.getResourceAsStream(RESOURCE))
+    {
+      if(is == null) throw new IllegalStateException("Missing resource " + RESOURCE);
+
+      PropertyIndex index = new PropertyIndex();
+      index.read(new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8)));
+      return index;
+    }
+    catch(IOException e)
+    {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  private void read(BufferedReader reader) throws IOException
+  {
+    Map<String, Property> current = null;
+    String currentType = null;
+
+    //Names declared with different values, which are left out of the unambiguous properties.
+    Map<String, Property> seen = new HashMap<>();
+
+    for(String line = reader.readLine(); line != null; line = reader.readLine())
+    {
+      if(line.isEmpty() || line.startsWith("#")) continue;
+
+      String[] fields = line.substring(1).split(" ");
+      if(line.charAt(0) == '>')
+      {
+        currentType = fields[0];
+        current = new HashMap<>();
+        declared.put(currentType, current);
+        if(fields.length > 1) superTypes.put(currentType, fields[1]);
+        continue;
+      }
+
+      Property p = new Property(fields[0], Kind.of(line.charAt(0)), Converter.valueOf(fields[1]), fields[2], (fields.length > 3) ? fields[3] : null);
+      if(p.kind == Kind.STATIC)
+      {
+        statics.put(currentType + "." + p.name, p);
+        continue;
+      }
+      current.put(p.name, p);
+
+      Property previous = seen.putIfAbsent(p.name, p);
+      if(previous == null) unambiguous.put(p.name, p);
+      else if(!previous.sameValue(p)) unambiguous.remove(p.name);
+    }
+  }
+}
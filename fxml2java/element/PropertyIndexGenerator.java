@@ -0,0 +1,379 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.lang.annotation.Annotation;
+import java.lang.reflect.Constructor;
+import java.lang.reflect.Field;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.Type;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystemAlreadyExistsException;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+
+import fxml2java.element.PropertyIndex.Converter;
+import fxml2java.element.PropertyIndex.Kind;
+import fxml2java.element.PropertyIndex.Property;
+import fxml2java.util.Util;
+import javafx.beans.NamedArg;
+import javafx.collections.ObservableList;
+import javafx.geometry.Insets;
+import javafx.scene.Node;
+import javafx.scene.control.Control;
+import javafx.scene.image.ImageView;
+import javafx.scene.layout.Region;
+import javafx.scene.paint.Color;
+import javafx.scene.paint.Paint;
+import javafx.scene.shape.Shape;
+import javafx.scene.text.Text;
+
+/**
+ * <p>Create the {@link PropertyIndex} resource by introspecting the public classes of the JavaFX packages.  Only needs to
+ * be run again to pick up a new JavaFX version:
+ * <pre>
+ * java fxml2java.element.PropertyIndexGenerator fxml2java/element/properties.index [class ...]
+ * </pre>
+ * Every public class in the package of each given class is indexed.  Without any classes, the packages of the standard
+ * scene, control, layout, shape, text, image, paint and geometry classes are indexed.
+ * <p>JavaFX classes are loaded but not initialised, so no toolkit is needed.
+ * 
+ * @author James David Foster
+ *
+ */
+public final class PropertyIndexGenerator
+{
+  /**
+   * <p>One class in each package indexed by default.
+   */
+  private static final Class<?>[] DEFAULT_PACKAGES = {Node.class, Control.class, Region.class, Shape.class, Text.class, ImageView.class, Color.class, Insets.class};
+
+  /**
+   * <p>Indexed classes by simple name.
+   */
+  private final Map<String, Class<?>> classes = new TreeMap<>();
+
+  private PropertyIndexGenerator()
+  {
+  }
+
+  /**
+   * <p>Write the index.
+   * 
+   * @param args output file, followed by optional class names.
+   * @throws Exception
+   */
+  public static void main(String[] args) throws Exception
+  {
+    if(args.length == 0)
+    {
+      System.err.println("Usage: PropertyIndexGenerator <output file> [class ...]");
+      System.exit(1);
+    }
+
+    PropertyIndexGenerator generator = new PropertyIndexGenerator();
+    if(args.length == 1)
+    {
+      for(Class<?> c : DEFAULT_PACKAGES) generator.addPackage(c);
+    }
+    else
+    {
+      for(int i = 1; i < args.length; i++) generator.addPackage(Class.forName(args[i], false, PropertyIndexGenerator.class.getClassLoader()));
+    }
+
+    try (BufferedWriter bw = Files.newBufferedWriter(Paths.get(args[0]), StandardCharsets.UTF_8))
+    {
+      generator.write(bw);
+    }
+  }
+
+  /**
+   * <p>Add the public top level classes in the package of the given class, wherever the package is loaded from.
+   * 
+   * @param anchor
+   * @throws IOException
+   * @throws URISyntaxException
+   */
+  private void addPackage(Class<?> anchor) throws IOException, URISyntaxException
+  {
+    URI uri = anchor.getResource(anchor.getSimpleName() + ".class").toURI();
+    if("jar".equals(uri.getScheme()))
+    {
+      try
+      {
+        FileSystems.newFileSystem(uri, Collections.emptyMap());
+      }
+      catch(FileSystemAlreadyExistsException e)
+      {
+        //Already open.
+      }
+    }
+
+    String pkg = anchor.getPackageName();
+    try (Stream<Path> files = Files.list(Paths.get(uri).getParent()))
+    {
+      for(Path p : (Iterable<Path>)files::iterator)
+      {
+        String file = p.getFileName().toString();
+        if(!file.endsWith(".class") || file.contains("$") || file.contains("-")) continue;
+
+        Class<?> c;
+        try
+        {
+          c = Class.forName(pkg + "." + file.substring(0, file.length() - ".class".length()), false, anchor.getClassLoader());
+        }
+        catch(ClassNotFoundException | LinkageError e)
+        {
+          continue;
+        }
+
+        if(Modifier.isPublic(c.getModifiers()) && !c.isInterface() && !c.isEnum() && !c.isAnnotation())
+        {
+          Class<?> existing = classes.putIfAbsent(c.getSimpleName(), c);
+          if(existing != null && existing != c) System.err.println("Ignored " + c.getName() + ": same name as " + existing.getName());
+        }
+      }
+    }
+  }
+
+  private void write(BufferedWriter bw) throws IOException
+  {
+    bw.write("# JavaFX property index.  Created by " + getClass().getName() + " - do not edit.");
+    bw.newLine();
+
+    for(Class<?> c : classes.values())
+    {
+      Class<?> sc = c.getSuperclass();
+      bw.write(">" + c.getSimpleName() + ((sc != null && classes.get(sc.getSimpleName()) == sc) ? " " + sc.getSimpleName() : ""));
+      bw.newLine();
+
+      for(Property p : declaredProperties(c).values())
+      {
+        bw.write(p.kind.code + p.name + " " + p.converter + " " + p.valueType + ((p.importName != null) ? " " + p.importName : ""));
+        bw.newLine();
+      }
+    }
+  }
+
+  /**
+   * <p>Find the properties of a class that it does not inherit from an indexed super class.
+   * 
+   * @param c
+   * @return properties by name.
+   */
+  private Map<String, Property> declaredProperties(Class<?> c)
+  {
+    Map<String, Property> properties = new TreeMap<>();
+
+    for(Method m : c.getMethods())
+    {
+      if(m.isSynthetic() || m.isBridge() || !m.getName().startsWith("set") || m.getName().length() == 3) continue;
+
+      String name = decapitalise(m.getName().substring(3));
+      Class<?>[] params = m.getParameterTypes();
+
+      if(Modifier.isStatic(m.getModifiers()))
+      {
+        //Static setters apply to the node given as the first argument.  Only the owner declares them.
+        if(m.getDeclaringClass() == c && params.length == 2 && Node.class.isAssignableFrom(params[0]))
+          properties.put(name, property(name, Kind.STATIC, params[1]));
+      }
+      else if(params.length == 1 && !properties.containsKey(name) && !inherited(c, name))
+      {
+        //Prefer the type the getter returns when the setter is overloaded.
+        Class<?> type = params[0];
+        Class<?> getterType = getterType(c, name);
+        if(getterType != null && getterType != type && hasSetter(c, m.getName(), getterType)) type = getterType;
+
+        properties.put(name, property(name, Kind.SETTER, type));
+      }
+    }
+
+    for(Method m : c.getMethods())
+    {
+      //Read-only lists, such as style classes, are added to rather than set.
+      if(Modifier.isStatic(m.getModifiers()) || m.getParameterCount() != 0 || !m.getName().startsWith("get") || m.getName().length() == 3
+        || !ObservableList.class.isAssignableFrom(m.getReturnType()))
+        continue;
+
+      String name = decapitalise(m.getName().substring(3));
+      if(properties.containsKey(name) || inherited(c, name)) continue;
+
+      Class<?> elementType = Object.class;
+      Type rt = m.getGenericReturnType();
+      if(rt instanceof ParameterizedType && ((ParameterizedType)rt).getActualTypeArguments()[0] instanceof Class)
+        elementType = (Class<?>)((ParameterizedType)rt).getActualTypeArguments()[0];
+
+      properties.put(name, property(name, Kind.LIST, elementType));
+    }
+
+    for(Constructor<?> k : c.getConstructors())
+    {
+      //Immutable types, such as Insets and Font, are created from named constructor arguments.
+      Class<?>[] params = k.getParameterTypes();
+      Annotation[][] annotations = k.getParameterAnnotations();
+      for(int i = 0; i < params.length; i++)
+      {
+        for(Annotation a : annotations[i])
+        {
+          if(!(a instanceof NamedArg)) continue;
+
+          String name = ((NamedArg)a).value();
+          if(!properties.containsKey(name) && !inherited(c, name))
+            properties.put(name, property(name, Kind.ARGUMENT, params[i]));
+        }
+      }
+    }
+
+    return properties;
+  }
+
+  /**
+   * <p>Create the property of the given value type.
+   * 
+   * @param name
+   * @param kind
+   * @param type
+   * @return
+   */
+  private static Property property(String name, Kind kind, Class<?> type)
+  {
+    //Lists of style sheets hold locations relative to the FXML.
+    if(kind == Kind.LIST && "stylesheets".equals(name) && type == String.class)
+      return new Property(name, kind, Converter.STYLESHEET, "String", "fxml2java.util.Util");
+
+    if(type == String.class)
+      return new Property(name, kind, Converter.STRING, "String", null);
+    if(type == double.class || type == Double.class || type == float.class || type == Float.class)
+      return new Property(name, kind, Converter.DOUBLE, type.getSimpleName(), null);
+    if(type.isPrimitive() || type == Boolean.class || type == Integer.class || type == Long.class || type == Short.class || type == Byte.class)
+      return new Property(name, kind, Converter.LITERAL, type.getSimpleName(), null);
+    if(type.isEnum())
+      return new Property(name, kind, Converter.ENUM, type.getSimpleName(), type.getCanonicalName());
+    if(Paint.class.isAssignableFrom(type))
+      return new Property(name, kind, Converter.COLOR, type.getSimpleName(), Color.class.getName());
+    if(hasValueOf(type))
+      return new Property(name, kind, Converter.VALUE_OF, type.getSimpleName(), type.getCanonicalName());
+    if(hasConstants(type))
+      return new Property(name, kind, Converter.CONSTANT, type.getSimpleName(), type.getCanonicalName());
+
+    return new Property(name, kind, Converter.REFERENCE, type.getSimpleName(), null);
+  }
+
+  /**
+   * <p>True if an indexed super class has a setter or getter of the property, so the property is inherited from it.
+   * 
+   * @param c
+   * @param name
+   * @return
+   */
+  private boolean inherited(Class<?> c, String name)
+  {
+    for(Class<?> sc = c.getSuperclass(); sc != null; sc = sc.getSuperclass())
+    {
+      if(classes.get(sc.getSimpleName()) == sc && (getterType(sc, name) != null || hasSetterNamed(sc, name))) return true;
+    }
+    return false;
+  }
+
+  /**
+   * <p>Get the type the public getter of a property returns.
+   * 
+   * @param c class, or null.
+   * @param name
+   * @return the type, or null if there is no getter.
+   */
+  private static Class<?> getterType(Class<?> c, String name)
+  {
+    if(c == null) return null;
+
+    for(String prefix : new String[] {"get", "is"})
+    {
+      try
+      {
+        Method m = c.getMethod(prefix + Util.capitalise(name));
+        if(!Modifier.isStatic(m.getModifiers())) return m.getReturnType();
+      }
+      catch(NoSuchMethodException e)
+      {
+        //Try the next prefix.
+      }
+    }
+    return null;
+  }
+
+  private static boolean hasSetter(Class<?> c, String setter, Class<?> type)
+  {
+    try
+    {
+      return !Modifier.isStatic(c.getMethod(setter, type).getModifiers());
+    }
+    catch(NoSuchMethodException e)
+    {
+      return false;
+    }
+  }
+
+  private static boolean hasSetterNamed(Class<?> c, String name)
+  {
+    String setter = "set" + Util.capitalise(name);
+    for(Method m : c.getMethods()) if(m.getName().equals(setter) && m.getParameterCount() == 1 && !Modifier.isStatic(m.getModifiers())) return true;
+    return false;
+  }
+
+  private static boolean hasValueOf(Class<?> type)
+  {
+    try
+    {
+      Method m = type.getMethod("valueOf", String.class);
+      return Modifier.isStatic(m.getModifiers()) && type.isAssignableFrom(m.getReturnType());
+    }
+    catch(NoSuchMethodException e)
+    {
+      return false;
+    }
+  }
+
+  private static boolean hasConstants(Class<?> type)
+  {
+    for(Field f : type.getDeclaredFields())
+    {
+      int m = f.getModifiers();
+      if(Modifier.isPublic(m) && Modifier.isStatic(m) && Modifier.isFinal(m) && f.getType() == type) return true;
+    }
+    return false;
+  }
+
+  private static String decapitalise(String name)
+  {
+    return name.substring(0, 1).toLowerCase() + name.substring(1);
+  }
+}
@@ -18,9 +18,8 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.util.ArrayList;
+import java.util.List;
 
 import javafx.scene.layout.Region;
 
@@ -32,16 +31,16 @@ import javafx.scene.layout.Region;
  */
 public class RegionElement extends FXMLElement
 {
-  protected RegionElement(Element element, ElementCreator elCreator)
+  protected RegionElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
 
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
     //Constraints.
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       case "children":
         handleChildren(element);
@@ -56,39 +55,25 @@ public class RegionElement extends FXMLElement
    * 
    * @param element
    */
-  private void handleChildren(Element element)
+  private void handleChildren(int element)
   {
-    //Create a string builder for the add children postfix instruction.
-    StringBuilder sb = new StringBuilder();
-    sb.append(instanceName + ".getChildren().addAll(");
-    boolean sep = false;
+    //Child instance names for the add children postfix instruction.
+    List<String> children = new ArrayList<>();
     
     //Create JFX objects for FXML elements.
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int item = tree.getFirstChild(element); item != FXMLTree.NONE; item = tree.getNextSibling(item))
     {
-      Node item = childNodes.item(i);
-      if(item.getNodeType() == Node.ELEMENT_NODE)
-      {
-        //Add the element to the children of this node.
-        FXMLElement createSubNode = createSubNode((Element) item);
-        
-        //Add sub node to this node's list.
-        addSubNode(createSubNode);
-        
-        //Separator.
-        if(sep) sb.append(", ");
-        //Add to child instances.
-        sb.append(createSubNode.instanceName);
-        //Set sep.
-        sep = true;
-      }
+      //Add the element to the children of this node.
+      FXMLElement createSubNode = createSubNode(item);
+      
+      //Add sub node to this node's list.
+      addSubNode(createSubNode);
+      
+      //Add to child instances.
+      children.add(createSubNode.instanceName);
     }
     
-    //Finish postfix create children.
-    sb.append(");");
-    
     //Create a postfix instruction to add the children to the regions children property.
-    addInstanceInstruction(sb.toString());
+    addInstanceInstruction(Instruction.addAll(instanceName, "children", children.toArray(new String[] {})));
   }
 }
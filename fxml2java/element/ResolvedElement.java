@@ -0,0 +1,103 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.IOException;
+
+import fxml2java.StringReceiver;
+
+/**
+ * <p>An element whose instructions, and those of all its sub nodes, have already been created.  Holds the instructions
+ * and resolved sub nodes only, so it keeps nothing of the resolution it came from alive.
+ * 
+ * @author James David Foster
+ *
+ */
+final class ResolvedElement extends FXMLElement
+{
+  /**
+   * <p>Sub nodes, output before the instructions.
+   */
+  private final ResolvedElement[] subNodes;
+
+  /**
+   * <p>Java instructions for creating this instance.
+   */
+  private final String[] instructions;
+
+  /**
+   * <p>Create from the instance details, sub nodes and instructions.
+   * 
+   * @param instanceDataType
+   * @param instanceGenericType
+   * @param instanceName
+   * @param isField
+   * @param subNodes
+   * @param instructions
+   */
+  ResolvedElement(String instanceDataType, String instanceGenericType, String instanceName, boolean isField, ResolvedElement[] subNodes, String[] instructions)
+  {
+    super(instanceDataType, instanceGenericType, instanceName, isField);
+    this.subNodes = subNodes;
+    this.instructions = instructions;
+  }
+
+  /**
+   * <p>Get the sub nodes.
+   * 
+   * @return
+   */
+  ResolvedElement[] getSubNodes()
+  {
+    return subNodes;
+  }
+
+  /**
+   * <p>Get the instructions.
+   * 
+   * @return
+   */
+  String[] getInstructions()
+  {
+    return instructions;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  ResolvedElement toResolvedElement()
+  {
+    return this;
+  }
+
+  /**
+   * {@inheritDoc}
+   */
+  @Override
+  public void outputInstructions(StringReceiver receiver) throws IOException
+  {
+    //Same order as any other element.
+    for(ResolvedElement fe : subNodes) fe.outputInstructions(receiver);
+
+    for(String s : instructions) receiver.receive(s);
+
+    receiver.receive("");
+  }
+}
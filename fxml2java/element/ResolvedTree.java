@@ -0,0 +1,401 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+
+import fxml2java.Handler;
+import fxml2java.IDManager;
+
+/**
+ * <p>The resolved elements of one source, kept so that the source can be resolved again after an edit without
+ * resolving the parts that did not change.
+ * <p>Every element created while resolving is recorded as a subtree: its output instructions together with everything
+ * it and its sub nodes added to the descriptor, and the number of generated ids they used.  A subtree is keyed by a
+ * hash of its FXML and by the first generated id it used, because generated instance names depend on how many ids
+ * were used before it.  When the same key comes up again, the recorded subtree is used instead of creating the element,
+ * so the result is the same as resolving everything.
+ * <p>A resolved tree is not changed once its resolution has finished, and can then be read by any thread.
+ * 
+ * @author James David Foster
+ *
+ */
+public final class ResolvedTree
+{
+  /**
+   * <p>Subtrees by key.
+   */
+  private final Map<Key, Subtree> subtrees = new HashMap<>();
+
+  /**
+   * <p>Create an empty tree, to resolve a source for the first time.
+   */
+  public ResolvedTree()
+  {
+  }
+
+  /**
+   * <p>Get the number of subtrees held.
+   * 
+   * @return
+   */
+  public int size()
+  {
+    return subtrees.size();
+  }
+
+  /**
+   * <p>Make the key of a subtree.
+   * 
+   * @param hashes subtree hashes from {@link FXMLTree#subtreeHashes()}.
+   * @param element the subtree's element.
+   * @param firstID the first generated id the subtree uses.
+   * @return
+   */
+  static Key key(long[] hashes, int element, int firstID)
+  {
+    return new Key(hashes[2 * element], hashes[2 * element + 1], firstID);
+  }
+
+  /**
+   * <p>Get the subtree with the given key.
+   * 
+   * @param key
+   * @return the subtree, or null.
+   */
+  Subtree get(Key key)
+  {
+    return subtrees.get(key);
+  }
+
+  /**
+   * <p>Add a subtree that has just been created.  Its sub nodes have already been added.
+   * 
+   * @param subtree
+   */
+  void put(Subtree subtree)
+  {
+    subtrees.put(subtree.key, subtree);
+  }
+
+  /**
+   * <p>Add a subtree reused from a previous resolution, with all of its sub nodes.
+   * 
+   * @param subtree
+   */
+  void keep(Subtree subtree)
+  {
+    subtrees.put(subtree.key, subtree);
+    for(Subtree child : subtree.children) keep(child);
+  }
+
+  /**
+   * <p>Write the tree in binary form.
+   * 
+   * @param out
+   * @throws IOException
+   */
+  void write(DataOutput out) throws IOException
+  {
+    //Number the elements and subtrees so that each comes after its sub nodes.  A subtree can be a sub node of more than
+    //one subtree when both hold an identical element which uses no generated ids.
+    Map<ResolvedElement, Integer> elementIndex = new IdentityHashMap<>();
+    List<ResolvedElement> elements = new ArrayList<>();
+    Map<Subtree, Integer> subtreeIndex = new IdentityHashMap<>();
+    List<Subtree> order = new ArrayList<>();
+    for(Subtree s : subtrees.values())
+    {
+      number(s.element, elementIndex, elements);
+      number(s, subtreeIndex, order);
+    }
+
+    out.writeInt(elements.size());
+    for(ResolvedElement e : elements)
+    {
+      FXMLTree.writeString(out, e.instanceDataType);
+      FXMLTree.writeString(out, e.instanceGenericType);
+      FXMLTree.writeString(out, e.instanceName);
+      out.writeBoolean(e.isField);
+
+      out.writeInt(e.getSubNodes().length);
+      for(ResolvedElement subNode : e.getSubNodes()) out.writeInt(elementIndex.get(subNode));
+
+      writeStrings(out, e.getInstructions());
+    }
+
+    out.writeInt(order.size());
+    for(Subtree s : order)
+    {
+      out.writeLong(s.key.hash1);
+      out.writeLong(s.key.hash2);
+      out.writeInt(s.key.firstID);
+      out.writeInt(elementIndex.get(s.element));
+      out.writeInt(s.idCount);
+      writeStrings(out, s.imports);
+      writeStrings(out, s.fields);
+
+      out.writeInt(s.handlers.length);
+      for(Handler h : s.handlers)
+      {
+        FXMLTree.writeString(out, h.getType());
+        FXMLTree.writeString(out, h.getHandlerName());
+      }
+
+      writeStrings(out, s.i18nInstructions);
+      writeStrings(out, s.warnings);
+
+      out.writeInt(s.children.length);
+      for(Subtree child : s.children) out.writeInt(subtreeIndex.get(child));
+    }
+  }
+
+  /**
+   * <p>Read a tree written by {@link #write(DataOutput)}.
+   * 
+   * @param in
+   * @return
+   * @throws IOException if the input ends early or does not describe a resolved tree.
+   */
+  static ResolvedTree read(DataInput in) throws IOException
+  {
+    ResolvedTree tree = new ResolvedTree();
+
+    ResolvedElement[] elements = new ResolvedElement[FXMLTree.readCount(in)];
+    for(int i = 0; i < elements.length; i++)
+    {
+      String dataType = FXMLTree.readString(in);
+      String genericType = FXMLTree.readString(in);
+      String name = FXMLTree.readString(in);
+      boolean isField = in.readBoolean();
+
+      ResolvedElement[] subNodes = new ResolvedElement[FXMLTree.readCount(in)];
+      for(int n = 0; n < subNodes.length; n++) subNodes[n] = elements[readIndex(in, i)];
+
+      elements[i] = new ResolvedElement(dataType, genericType, name, isField, subNodes, readStrings(in));
+    }
+
+    Subtree[] order = new Subtree[FXMLTree.readCount(in)];
+    for(int i = 0; i < order.length; i++)
+    {
+      Key key = new Key(in.readLong(), in.readLong(), in.readInt());
+      ResolvedElement element = elements[readIndex(in, elements.length)];
+      int idCount = FXMLTree.readCount(in);
+      String[] imports = readStrings(in);
+      String[] fields = readStrings(in);
+
+      Handler[] handlers = new Handler[FXMLTree.readCount(in)];
+      for(int h = 0; h < handlers.length; h++) handlers[h] = new Handler(FXMLTree.readString(in), FXMLTree.readString(in));
+
+      String[] i18nInstructions = readStrings(in);
+      String[] warnings = readStrings(in);
+
+      Subtree[] children = new Subtree[FXMLTree.readCount(in)];
+      for(int c = 0; c < children.length; c++) children[c] = order[readIndex(in, i)];
+
+      order[i] = new Subtree(key, element, idCount, imports, fields, handlers, i18nInstructions, warnings, children);
+      tree.put(order[i]);
+    }
+
+    return tree;
+  }
+
+  private static void number(ResolvedElement e, Map<ResolvedElement, Integer> index, List<ResolvedElement> order)
+  {
+    if(index.containsKey(e)) return;
+    for(ResolvedElement subNode : e.getSubNodes()) number(subNode, index, order);
+    index.put(e, order.size());
+    order.add(e);
+  }
+
+  private static void number(Subtree s, Map<Subtree, Integer> index, List<Subtree> order)
+  {
+    if(index.containsKey(s)) return;
+    for(Subtree child : s.children) number(child, index, order);
+    index.put(s, order.size());
+    order.add(s);
+  }
+
+  /**
+   * <p>Read the index of an earlier entry.
+   * 
+   * @param in
+   * @param limit the number of entries read so far.
+   * @return
+   * @throws IOException
+   */
+  private static int readIndex(DataInput in, int limit) throws IOException
+  {
+    int index = in.readInt();
+    if(index < 0 || index >= limit) throw new IOException("Damaged resolved tree: index " + index + ".");
+    return index;
+  }
+
+  private static String[] readStrings(DataInput in) throws IOException
+  {
+    String[] values = new String[FXMLTree.readCount(in)];
+    for(int i = 0; i < values.length; i++) values[i] = FXMLTree.readString(in);
+    return values;
+  }
+
+  private static void writeStrings(DataOutput out, String[] values) throws IOException
+  {
+    out.writeInt(values.length);
+    for(String s : values) FXMLTree.writeString(out, s);
+  }
+
+  /**
+   * <p>Key of a subtree: the hash of its FXML, with the imports that decide its handlers, and the first generated id it
+   * uses.
+   */
+  static final class Key
+  {
+    final long hash1;
+
+    final long hash2;
+
+    final int firstID;
+
+    Key(long hash1, long hash2, int firstID)
+    {
+      this.hash1 = hash1;
+      this.hash2 = hash2;
+      this.firstID = firstID;
+    }
+
+    @Override
+    public boolean equals(Object o)
+    {
+      if(!(o instanceof Key)) return false;
+      Key k = (Key) o;
+      return hash1 == k.hash1 && hash2 == k.hash2 && firstID == k.firstID;
+    }
+
+    @Override
+    public int hashCode()
+    {
+      return (int) hash1 * 31 + firstID;
+    }
+  }
+
+  /**
+   * <p>One created element and what creating it added to the descriptor.
+   */
+  static final class Subtree
+  {
+    final Key key;
+
+    /**
+     * <p>The element, given to its parent in place of the element that was created.
+     */
+    final ResolvedElement element;
+
+    /**
+     * <p>Number of generated ids used.
+     */
+    final int idCount;
+
+    /**
+     * <p>Every import added, in order, including ones that were already present.
+     */
+    final String[] imports;
+
+    final String[] fields;
+
+    final Handler[] handlers;
+
+    final String[] i18nInstructions;
+
+    final String[] warnings;
+
+    /**
+     * <p>The subtrees created while creating this one, in order.
+     */
+    final Subtree[] children;
+
+    private Subtree(Key key, ResolvedElement element, int idCount, String[] imports, String[] fields, Handler[] handlers, String[] i18nInstructions, String[] warnings, Subtree[] children)
+    {
+      this.key = key;
+      this.element = element;
+      this.idCount = idCount;
+      this.imports = imports;
+      this.fields = fields;
+      this.handlers = handlers;
+      this.i18nInstructions = i18nInstructions;
+      this.warnings = warnings;
+      this.children = children;
+    }
+
+    /**
+     * <p>Mark the descriptor before an element is created.
+     * 
+     * @param fjd
+     * @return
+     */
+    static int[] mark(FXMLJavaDescriptorImpl fjd)
+    {
+      return fjd.mark();
+    }
+
+    /**
+     * <p>Record an element that has just been created, with everything added to the descriptor since the mark.
+     * 
+     * @param key
+     * @param element
+     * @param idCount
+     * @param fjd
+     * @param mark
+     * @param children
+     * @return
+     */
+    static Subtree record(Key key, FXMLElement element, int idCount, FXMLJavaDescriptorImpl fjd, int[] mark, List<Subtree> children)
+    {
+      return new Subtree(key, element.toResolvedElement(), idCount,
+          fjd.importRequestList.subList(mark[0], fjd.importRequestList.size()).toArray(new String[] {}),
+          fjd.fieldList.subList(mark[1], fjd.fieldList.size()).toArray(new String[] {}),
+          fjd.handlerList.subList(mark[2], fjd.handlerList.size()).toArray(new Handler[] {}),
+          fjd.setI18NTextCommandList.subList(mark[3], fjd.setI18NTextCommandList.size()).toArray(new String[] {}),
+          fjd.warningList.subList(mark[4], fjd.warningList.size()).toArray(new String[] {}),
+          children.toArray(new Subtree[] {}));
+    }
+
+    /**
+     * <p>Add to the descriptor what creating the element added, and use the same number of generated ids.
+     * 
+     * @param fjd
+     * @param idm
+     */
+    void replay(FXMLJavaDescriptorImpl fjd, IDManager idm)
+    {
+      for(String s : imports) fjd.addImport(s);
+      for(String s : fields) fjd.addField(s);
+      for(Handler h : handlers) fjd.addHandlerInstruction(h);
+      for(String s : i18nInstructions) fjd.setI18NTextCommandList.add(s);
+      for(String s : warnings) fjd.warningList.add(s);
+
+      idm.skipIDs(idCount);
+    }
+  }
+}
@@ -0,0 +1,108 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.util.concurrent.ForkJoinPool;
+
+/**
+ * <p>Optional settings for resolving FXML content with {@link FXMLDOMResolver} or {@link FXMLStAXResolver}.  The
+ * defaults parse every source, do not record the resolution and resolve on the calling thread, keeping every instruction
+ * in memory.  Each setter returns the options so that they can be chained.
+ * 
+ * @author James David Foster
+ *
+ */
+public final class ResolverOptions
+{
+  /**
+   * <p>The parse cache, or null to always parse.
+   */
+  ParseCache parseCache;
+
+  /**
+   * <p>The previous resolution of the source, or null to not record the resolution.
+   */
+  ResolvedTree previous;
+
+  /**
+   * <p>Pool to resolve large subtrees in, or null to resolve on the calling thread only.
+   */
+  ForkJoinPool pool;
+
+  /**
+   * <p>True to flush the instructions of each element as it is finished.
+   */
+  boolean streamInstructions;
+
+  /**
+   * <p>Take the parsed tree from the given cache if the same content has been parsed before.  Content that is not in the
+   * cache is parsed and then stored in it.
+   * 
+   * @param parseCache the cache, or null to always parse.
+   * @return these options.
+   */
+  public ResolverOptions setParseCache(ParseCache parseCache)
+  {
+    this.parseCache = parseCache;
+    return this;
+  }
+
+  /**
+   * <p>Reuse the parts of a previous resolution of the same file that have not changed.  The new resolution is recorded
+   * and can be passed in when the file is next resolved.
+   * 
+   * @param previous the previous resolution of the file, an empty {@link ResolvedTree} if there is none, or null to not
+   *          record the resolution.
+   * @return these options.
+   * @see FXMLDOMResolver#getResolvedTree()
+   */
+  public ResolverOptions setPrevious(ResolvedTree previous)
+  {
+    this.previous = previous;
+    return this;
+  }
+
+  /**
+   * <p>Resolve large subtrees in parallel in the given pool.  The result is the same as resolving on one thread.  Subtrees
+   * are only resolved in parallel when the resolution is not recorded.
+   * 
+   * @param pool the pool, or null to resolve on the calling thread only.
+   * @return these options.
+   */
+  public ResolverOptions setPool(ForkJoinPool pool)
+  {
+    this.pool = pool;
+    return this;
+  }
+
+  /**
+   * <p>Flush the instructions of each element to a temporary file as soon as the element is finished instead of keeping
+   * them until the code is generated.  Only the fields, imports, handlers and i18n instructions are kept in memory, so the
+   * memory needed does not grow with the number of elements.  Instructions are only flushed when the resolution is not
+   * recorded, and take precedence over resolving in parallel.  {@link FXMLJavaDescriptor#release()} deletes the file.
+   * 
+   * @param streamInstructions true to flush the instructions of each element as it is finished.
+   * @return these options.
+   */
+  public ResolverOptions setStreamInstructions(boolean streamInstructions)
+  {
+    this.streamInstructions = streamInstructions;
+    return this;
+  }
+}
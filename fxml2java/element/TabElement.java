@@ -18,10 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
-
 import javafx.scene.control.TabPane;
 
 /**
@@ -37,15 +33,15 @@ public class TabElement extends RegionElement
    * 
    * @param element
    */
-  public TabElement(Element element, ElementCreator elCreator)
+  public TabElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
 
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       //Constraints.
       case "content":
@@ -57,29 +53,21 @@ public class TabElement extends RegionElement
     
   }
 
-  private void handleTab(Element element)
+  private void handleTab(int element)
   {
     //Get each constraint element and add instructions for it.
-    NodeList childNodes = element.getChildNodes();
-    for(int i = 0; i < childNodes.getLength(); i++)
+    for(int tabContent = tree.getFirstChild(element); tabContent != FXMLTree.NONE; tabContent = tree.getNextSibling(tabContent))
     {
-      //Only process Element type nodes.
-      if(childNodes.item(i).getNodeType() == Node.ELEMENT_NODE)
-      {
-        //Get the tab fxml element and create a tab with it.
-        Element tabContent = (Element) childNodes.item(i);
-
-        //Create the element.
-        FXMLElement content = createSubNode(tabContent);
-        //Add to the tab.
-        addSubNode(content);
-        
-        //Add the tab to the instance's tabs property.
-        addInstanceInstruction(instanceName + ".setContent(" + content.instanceName + ");");
-        
-        //Only one content node allowed - break.
-        break;
-      }
+      //Create the element.
+      FXMLElement content = createSubNode(tabContent);
+      //Add to the tab.
+      addSubNode(content);
+      
+      //Add the tab to the instance's tabs property.
+      addInstanceInstruction(Instruction.setProperty(instanceName, "content", content.instanceName));
+      
+      //Only one content node allowed - break.
+      break;
     }
   }
   
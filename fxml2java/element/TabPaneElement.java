@@ -18,9 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
 import javafx.scene.control.TabPane;
 
 /**
@@ -36,15 +33,15 @@ public class TabPaneElement extends RegionElement
    * 
    * @param element
    */
-  public TabPaneElement(Element element, ElementCreator elCreator)
+  public TabPaneElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
 
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       //Constraints.
       case "tabs":
@@ -56,22 +53,19 @@ public class TabPaneElement extends RegionElement
     
   }
 
-  private void handleTabs(Element element)
+  private void handleTabs(int element)
   {
     //Get each constraint element and add instructions for it.
-    NodeList childNodes = element.getElementsByTagName("Tab");
-    for(int i = 0; i < childNodes.getLength(); i++)
+    //Direct children only - tabs of a nested TabPane belong to that TabPane.
+    for(int tab = tree.getFirstChild(element, "Tab"); tab != FXMLTree.NONE; tab = tree.getNextSameName(tab))
     {
-      //Get the tab fxml element and create a tab with it.
-      Element tab = (Element) childNodes.item(i);
-
       //Create the tab instance.
       //Handle the Tab's children element(s).
       FXMLElement subNode = createSubNode(tab);
       addSubNode(subNode);
       
       //Add the tab to the instance's tabs property.
-      addInstanceInstruction(instanceName + ".getTabs().add(" + subNode.instanceName + ");");
+      addInstanceInstruction(Instruction.add(instanceName, "tabs", subNode.instanceName));
       
     }
   }
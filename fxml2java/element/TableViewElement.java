@@ -18,9 +18,6 @@ under the License.
  */
 package fxml2java.element;
 
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
 public class TableViewElement extends RegionElement
 {
   /**
@@ -28,16 +25,16 @@ public class TableViewElement extends RegionElement
    * 
    * @param element
    */
-  public TableViewElement(Element element, ElementCreator elCreator)
+  public TableViewElement(int element, ElementCreator elCreator)
   {
     super(element, elCreator);
   }
   
   @Override
-  protected void handleElement(Element element)
+  protected void handleElement(int element)
   {
     //Columns.
-    switch(element.getNodeName())
+    switch(tree.getName(element))
     {
       case "columns":
         handleColumms(element);
@@ -47,16 +44,12 @@ public class TableViewElement extends RegionElement
     }
   }
 
-  private void handleColumms(Element element)
+  private void handleColumms(int element)
   {
     //Get the <TableColumn>s
-    NodeList elementsByTagName = element.getElementsByTagName("TableColumn");
-    //This should return a node list with column elements in it.
-    for(int i = 0; i < elementsByTagName.getLength(); i++)
+    //Direct children only - columns nested inside a column belong to that column.
+    for(int elTCol = tree.getFirstChild(element, "TableColumn"); elTCol != FXMLTree.NONE; elTCol = tree.getNextSameName(elTCol))
     {
-      //Get the table column element.
-      Element elTCol = (Element) elementsByTagName.item(i);
-      
       //Add the instruction.
       FXMLElement createSubNode = createSubNode(elTCol);
       
@@ -64,7 +57,7 @@ public class TableViewElement extends RegionElement
       addSubNode(createSubNode);
 
       //Create a postfix instruction to add the children to the regions children property.
-      addInstanceInstruction(instanceName + ".getColumns().add(" + createSubNode.instanceName + ");");
+      addInstanceInstruction(Instruction.add(instanceName, "columns", createSubNode.instanceName));
     }
   }  
 }
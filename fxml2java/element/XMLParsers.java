@@ -0,0 +1,158 @@
+/**
+Licensed to the Apache Software Foundation (ASF) under one
+or more contributor license agreements.  See the NOTICE file
+distributed with this work for additional information
+regarding copyright ownership.  The ASF licenses this file
+to you under the Apache License, Version 2.0 (the
+"License"); you may not use this file except in compliance
+with the License.  You may obtain a copy of the License at
+
+  http://www.apache.org/licenses/LICENSE-2.0
+
+Unless required by applicable law or agreed to in writing,
+software distributed under the License is distributed on an
+"AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+KIND, either express or implied.  See the License for the
+specific language governing permissions and limitations
+under the License.    
+ */
+package fxml2java.element;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLResolver;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+import org.xml.sax.EntityResolver;
+import org.xml.sax.InputSource;
+
+/**
+ * <p>Shared XML parser set-up for the resolvers.  The JAXP factories are looked up and configured once.  Each thread
+ * then keeps its own document builder and stream factory, so parallel conversions never share a parser and a builder
+ * is reset rather than created again for every file.
+ * <p>Parsers are non-validating and never read anything other than the source itself: external DTDs, external entities
+ * and XInclude are not loaded, so a conversion can not stall waiting for the network.
+ * 
+ * @author James David Foster
+ *
+ */
+final class XMLParsers
+{
+  /**
+   * <p>Resolves every external entity and DTD to empty content.
+   */
+  private static final EntityResolver NO_EXTERNAL_ENTITIES = (publicId, systemId) -> new InputSource(new ByteArrayInputStream(new byte[0]));
+
+  /**
+   * <p>Resolves every external entity and DTD to empty content.
+   */
+  private static final XMLResolver NO_EXTERNAL_RESOURCES = (publicID, systemID, baseURI, namespace) -> new ByteArrayInputStream(new byte[0]);
+
+  /**
+   * <p>Configured DOM factory.  Only used to create builders.
+   */
+  private static final DocumentBuilderFactory DOCUMENT_BUILDER_FACTORY = createDocumentBuilderFactory();
+
+  /**
+   * <p>Each thread's document builder.
+   */
+  private static final ThreadLocal<DocumentBuilder> DOCUMENT_BUILDERS = new ThreadLocal<>();
+
+  /**
+   * <p>Each thread's stream factory.
+   */
+  private static final ThreadLocal<XMLInputFactory> INPUT_FACTORIES = ThreadLocal.withInitial(XMLParsers::createInputFactory);
+
+  private XMLParsers()
+  {
+  }
+
+  /**
+   * <p>Get the calling thread's document builder, reset ready for a new document.  The builder must not be passed to
+   * another thread.
+   * 
+   * @return
+   * @throws ParserConfigurationException
+   */
+  static DocumentBuilder documentBuilder() throws ParserConfigurationException
+  {
+    DocumentBuilder db = DOCUMENT_BUILDERS.get();
+
+    if (db == null)
+    {
+      db = DOCUMENT_BUILDER_FACTORY.newDocumentBuilder();
+      DOCUMENT_BUILDERS.set(db);
+    }
+    else
+    {
+      db.reset();
+    }
+
+    // Reset clears the resolver.
+    db.setEntityResolver(NO_EXTERNAL_ENTITIES);
+
+    return db;
+  }
+
+  /**
+   * <p>Create a stream reader over the given input using the calling thread's stream factory.
+   * 
+   * @param is
+   * @return
+   * @throws XMLStreamException
+   */
+  static XMLStreamReader streamReader(InputStream is) throws XMLStreamException
+  {
+    return INPUT_FACTORIES.get().createXMLStreamReader(is);
+  }
+
+  private static DocumentBuilderFactory createDocumentBuilderFactory()
+  {
+    DocumentBuilderFactory dbf = DocumentBuilderFactory.newInstance();
+    dbf.setValidating(false);
+    dbf.setNamespaceAware(false);
+    dbf.setXIncludeAware(false);
+
+    // Not every JAXP implementation knows every feature.  The entity resolver stops external access regardless.
+    setFeature(dbf, XMLConstants.FEATURE_SECURE_PROCESSING, true);
+    setFeature(dbf, "http://apache.org/xml/features/nonvalidating/load-external-dtd", false);
+    setFeature(dbf, "http://xml.org/sax/features/external-general-entities", false);
+    setFeature(dbf, "http://xml.org/sax/features/external-parameter-entities", false);
+
+    return dbf;
+  }
+
+  private static void setFeature(DocumentBuilderFactory dbf, String feature, boolean value)
+  {
+    try
+    {
+      dbf.setFeature(feature, value);
+    }
+    catch (ParserConfigurationException e)
+    {
+      // Not supported by this implementation.
+    }
+  }
+
+  private static XMLInputFactory createInputFactory()
+  {
+    XMLInputFactory xif = XMLInputFactory.newInstance();
+    xif.setProperty(XMLInputFactory.IS_VALIDATING, false);
+    xif.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+    xif.setXMLResolver(NO_EXTERNAL_RESOURCES);
+
+    // Read text in one piece and names as written, like the DOM parser.  Namespace declarations are then ordinary
+    // attributes.
+    xif.setProperty(XMLInputFactory.IS_COALESCING, true);
+    xif.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, false);
+
+    return xif;
+  }
+}
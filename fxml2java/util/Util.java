@@ -14,13 +14,16 @@
 package fxml2java.util;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
-import java.util.Iterator;
-import java.util.NoSuchElementException;
-
-import org.w3c.dom.Element;
-import org.w3c.dom.Node;
-import org.w3c.dom.NodeList;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 
 /**
  * <p>This class contains simple utility methods for assisting in converting FXML text files to plain Java components.
@@ -30,6 +33,11 @@ import org.w3c.dom.NodeList;
  */
 public class Util
 {
+  /**
+   * <p>Files at least this size are memory mapped by {@link #readFile(Path)}.  Mapping costs more than reading for small files.
+   */
+  private static final long MAP_THRESHOLD = 1024 * 1024;
+  
   /**
    * <p>Capitalise the first letter of the string.  A lower case string can be prepended to create a camel case identifier (for example).
    * 
@@ -77,64 +85,111 @@ public class Util
   }
   
   /**
-   * <p>Use the absolute path of the source fxml file and the relative file path to the resource using the source
-   * filename to determine the package where the generated class will reside.  The <b>relative</b> path to the resource is from the
-   * <b>generated file location</b>.
+   * <p>Find the source root directory for the given source fxml file.  This is the parent of the nearest directory above
+   * the source file which is named after the first package of the generated class.
    * 
-   * @param sourceFXMLFilePath the source FXML file.  The filename <b>MUST BE</b> the fully-qualified class name of the generated class. 
-   * @param relativePathToResource the relative path to the resource from the <b>generated</b> FXML>Java file.
-   * @return the relative path calculated.
+   * @param sourceFXMLFilePath the source FXML file.  The filename <b>MUST BE</b> the fully-qualified class name of the generated class.
+   * @return the source root, or null if the source file is not in a directory named after the first package.
    */
-  public static String findRelativeResourceLocation(String sourceFXMLFilePath, String relativePathToResource)
+  public static File findSourceRoot(String sourceFXMLFilePath)
   {
     //Replace any backslash separators with fwdslash.
-    sourceFXMLFilePath = sourceFXMLFilePath.replaceAll("\\\\", "/");
+    Path root = findSourceRoot(Paths.get(sourceFXMLFilePath.replaceAll("\\\\", "/")));
     
-    //Get the filename.
-    File f = new File(sourceFXMLFilePath);
+    return (root != null) ? root.toFile() : null;
+  }
+  
+  /**
+   * <p>Find the source root directory for the given source fxml file, which can be in any file system - for example
+   * inside a jar opened as a zip file system.  This is the parent of the nearest directory above the source file which is
+   * named after the first package of the generated class.
+   * 
+   * @param sourceFXMLFile the source FXML file.  The filename <b>MUST BE</b> the fully-qualified class name of the generated class.
+   * @return the source root, or null if the source file is not in a directory named after the first package.
+   */
+  public static Path findSourceRoot(Path sourceFXMLFile)
+  {
+    //Split the filename around ".".  The first entry is the first package.
+    String[] destPathCalc = sourceFXMLFile.getFileName().toString().split("\\.");
     
-    //Get the dest file name.
-    String destName = f.getName();
-    //Split around ".".  We are interested in everything before the last 2 entries: filename and ".fxml"
-    String[] destPathCalc = destName.split("\\.");
-    //First entry.
-    File srcParent = f.getParentFile();
-    boolean found = false;
-    while(!found)
+    for(Path srcParent = sourceFXMLFile.getParent(); srcParent != null; srcParent = srcParent.getParent())
     {
-      if(destPathCalc[0].equalsIgnoreCase(srcParent.getName()))
+      //The root of a file system has no name.
+      if(srcParent.getFileName() != null && destPathCalc[0].equalsIgnoreCase(srcParent.getFileName().toString()))
       {
-        found = true;
+        return srcParent.getParent();
       }
-      srcParent = srcParent.getParentFile();
     }
     
-    //Got the source parent absolute file.
+    return null;
+  }
+  
+  /**
+   * <p>Use the absolute path of the source fxml file and the relative file path to the resource using the source
+   * filename to determine the package where the generated class will reside.  The <b>relative</b> path to the resource is from the
+   * <b>generated file location</b>.
+   * 
+   * @param sourceFXMLFilePath the source FXML file.  The filename <b>MUST BE</b> the fully-qualified class name of the generated class. 
+   * @param relativePathToResource the relative path to the resource from the <b>generated</b> FXML>Java file.
+   * @return the relative path calculated.
+   */
+  public static String findRelativeResourceLocation(String sourceFXMLFilePath, String relativePathToResource)
+  {
+    //Replace any backslash separators with fwdslash.
+    return findRelativeResourceLocation(Paths.get(sourceFXMLFilePath.replaceAll("\\\\", "/")), relativePathToResource);
+  }
+  
+  /**
+   * <p>Use the path of the source fxml file, in any file system, and the relative file path to the resource to find the
+   * resource's location below the source root.  See {@link #findRelativeResourceLocation(String, String)}.
+   * 
+   * @param sourceFXMLFile the source FXML file.  The filename <b>MUST BE</b> the fully-qualified class name of the generated class. 
+   * @param relativePathToResource the relative path to the resource from the <b>generated</b> FXML>Java file.
+   * @return the relative path calculated, always with fwdslash separators.
+   */
+  public static String findRelativeResourceLocation(Path sourceFXMLFile, String relativePathToResource)
+  {
+    //Got the source parent.
+    Path srcParent = findSourceRoot(sourceFXMLFile);
     //
     //Get the path for the given source
     //Replace any backslash separators with fwdslash.
     relativePathToResource = relativePathToResource.replaceAll("\\\\", "/");
-    File rscFile = f.getParentFile();
+    Path rscFile = sourceFXMLFile.getParent();
     
-    destPathCalc = relativePathToResource.split("/");
+    String[] destPathCalc = relativePathToResource.split("/");
     
     for(String s : destPathCalc)
     {
       if("..".equals(s))
       {
-        rscFile = rscFile.getParentFile();
+        rscFile = rscFile.getParent();
       }
       else
       {
-        rscFile = new File(rscFile, s);
+        rscFile = rscFile.resolve(s);
       }
     }
     
-    //Finally - we've got the source directory.  Strip that off the front.
-    String dstRsc = rscFile.toString().substring(srcParent.toString().length());
+    //Finally - we've got the source directory.  Strip that off the front.  Join the remaining names with fwdslash
+    //whatever the file system's separator is.
+    StringBuilder dstRsc = new StringBuilder();
+    for(Path name : srcParent.relativize(rscFile)) dstRsc.append('/').append(name);
 
     //
-    return dstRsc.replaceAll("\\\\", "/");
+    return dstRsc.toString();
+  }
+  
+  /**
+   * <p>Get a string that identifies the file, for use as a key.  This is the absolute path of a file in the default file
+   * system, and the URI of a file in any other file system, which includes the archive of a zip file system.
+   * 
+   * @param file
+   * @return
+   */
+  public static String getLocation(Path file)
+  {
+    return (file.getFileSystem() == FileSystems.getDefault()) ? file.toAbsolutePath().toString() : file.toUri().toString();
   }
 
   /**
@@ -194,96 +249,87 @@ public class Util
   }
   
   /**
-   * <p>Simple utility method to get the first XML sub element of the given element.  Returns null if none available.
-   *  
-   * @param element
-   * @return
+   * <p>Read the whole of a file into a buffer.  Small files are read in one bulk read into a buffer of exactly the file's
+   * size and large files are memory mapped, so the content is not copied again through a stream.  Files in other file
+   * systems, such as an entry of a jar opened as a zip file system, are read in place through the file system's own
+   * channel and are never mapped.
+   * 
+   * @param file
+   * @return buffer holding the file content, positioned at the start.
+   * @throws IOException
    */
-  public static Element getFirstXMLElement(Element element)
+  public static ByteBuffer readFile(Path file) throws IOException
   {
-    //Get element child nodes.
-    NodeList childNodes = element.getChildNodes();
-    
-    //Cycle through until first element is found.
-    for(int i = 0; i < childNodes.getLength(); i++)
+    try(SeekableByteChannel ch = Files.newByteChannel(file))
     {
-      Node node = childNodes.item(i);
-      if(node.getNodeType() == Node.ELEMENT_NODE) return (Element) node;
+      long size = ch.size();
+      
+      //The mapping stays valid after the channel is closed.
+      if(size >= MAP_THRESHOLD && ch instanceof FileChannel) return ((FileChannel) ch).map(FileChannel.MapMode.READ_ONLY, 0, size);
+      
+      ByteBuffer buffer = ByteBuffer.allocate((int) size);
+      while(buffer.hasRemaining())
+      {
+        //Stop if the file has been shortened since its size was read.
+        if(ch.read(buffer) < 0) break;
+      }
+      
+      return buffer.flip();
     }
-    
-    //Return null by default - no element found.
-    return null;
   }
-
-  public static Iterator<Element> getSubElementIterator(Element element)
+  
+  /**
+   * <p>Get an input stream which reads the remaining content of the buffer.  The buffer's own position is not changed.
+   * 
+   * @param buffer
+   * @return
+   */
+  public static InputStream newInputStream(ByteBuffer buffer)
   {
-    return new SubElementIterator(element);
+    return new ByteBufferInputStream(buffer.duplicate());
   }
   
-  private static class SubElementIterator implements Iterator<Element>
+  private static class ByteBufferInputStream extends InputStream
   {
     /*
-     * The parent element.
-     */
-    final Element parent;
-    
-    /*
-     * Index of next sub element in the parent element.
+     * The content.  Reading moves its position.
      */
-    int nextIX = 0;
+    final ByteBuffer buffer;
     
-    private SubElementIterator(Element el)
+    private ByteBufferInputStream(ByteBuffer buffer)
     {
-      //Store parent ref.
-      this.parent = el;
+      this.buffer = buffer;
+    }
 
-      //Find the first element if it exists.
-      findNext();
+    @Override
+    public int read()
+    {
+      return buffer.hasRemaining() ? buffer.get() & 0xff : -1;
     }
 
-    private final void findNext()
+    @Override
+    public int read(byte[] b, int off, int len)
     {
-      //Find the next element if it exists.
-      NodeList childNodes = parent.getChildNodes();
-      for(int i = ++nextIX; i < childNodes.getLength(); i++)
-      {
-        //Any Element node.
-        if(childNodes.item(i).getNodeType() == Node.ELEMENT_NODE) 
-        {
-          //Update next index.
-          nextIX = i;
-          
-          //Complete - return.
-          return;
-        }
-      }
+      if(len == 0) return 0;
+      if(!buffer.hasRemaining()) return -1;
       
-      //Nothing found.  Set next ix to -1.
-      nextIX = -1;
+      len = Math.min(len, buffer.remaining());
+      buffer.get(b, off, len);
+      return len;
     }
-    
+
     @Override
-    public boolean hasNext()
+    public long skip(long n)
     {
-      // nextIX is not -1.
-      return nextIX != -1;
+      int skipped = (int) Math.max(0, Math.min(n, buffer.remaining()));
+      buffer.position(buffer.position() + skipped);
+      return skipped;
     }
 
     @Override
-    public Element next()
+    public int available()
     {
-      //Next element exists?
-      if(nextIX == -1) throw new NoSuchElementException();
-      
-      //Store the index to return.
-      int retIX = nextIX;
-      
-      //Find the next element if it exists.
-      findNext();
-      
-      // Return the element at the return index.
-      return (Element) parent.getChildNodes().item(retIX);
+      return buffer.remaining();
     }
-    
   }
 }
@@ -23,4 +23,8 @@ module FXML2Java
   exports fxml2java;
   
   exports fxml2java.example;
+  
+  exports fxml2java.element;
+  
+  uses fxml2java.element.ElementHandlerProvider;
 }
\ No newline at end of file